@@ -0,0 +1,122 @@
+package com.voltazor.myapplication;
+
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.test.AndroidTestCase;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+
+import androidx.recyclerview.widget.GridLayoutManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts objects allocated by position rebinds of {@link PhotosAdapter}, which is what every tile
+ * between the two ends of a reorder goes through. Listeners and gesture detectors belong
+ * to holders, so once every holder was bound there should be nothing left to allocate.
+ */
+public class PhotosAdapterAllocationTest extends AndroidTestCase {
+
+    private static final int PICTURE_COUNT = 20;
+    private static final int ROUNDS = 10;
+
+    private PhotosAdapter mAdapter;
+    private final List<PhotosAdapter.PhotoViewHolder> mHolders = new ArrayList<>();
+    private final List<Object> mPayloads = Collections.singletonList(PhotosAdapter.PAYLOAD_POSITION);
+    private int mAllocCount;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        List<UserPicture> pictures = new ArrayList<>();
+        for (int i = 0; i < PICTURE_COUNT; i++) {
+            UserPicture picture = new UserPicture();
+            picture.setId(i + 1000);
+            picture.setPictureUrl("http://example.com/" + i + ".jpg");
+            pictures.add(picture);
+        }
+        final PagedPictureList list = new PagedPictureList(new ListPictureStore(pictures));
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                GridLayoutManager layoutManager = new GridLayoutManager(getContext(), 4);
+                mAdapter = new PhotosAdapter(getContext(), list, layoutManager, new EmptyCallback(), false);
+                FrameLayout container = new FrameLayout(getContext());
+                ImageView animatedView = new ImageView(getContext());
+                container.addView(animatedView);
+                new PhotoDragController(mAdapter, new ImageView(getContext()), animatedView, mAdapter);
+
+                FrameLayout parent = new FrameLayout(getContext());
+                for (int position = 0; position < PICTURE_COUNT; position++) {
+                    PhotosAdapter.PhotoViewHolder holder = mAdapter.onCreateViewHolder(parent, 0);
+                    // First bind of a holder registers it and creates its gesture detector
+                    mAdapter.onBindViewHolder(holder, position, mPayloads);
+                    mHolders.add(holder);
+                }
+            }
+        });
+    }
+
+    public void testPositionRebindAllocatesNothing() throws Exception {
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Debug.resetThreadAllocCount();
+                Debug.startAllocCounting();
+                for (int round = 0; round < ROUNDS; round++) {
+                    for (int position = 0; position < PICTURE_COUNT; position++) {
+                        mAdapter.onBindViewHolder(mHolders.get(position), position, mPayloads);
+                    }
+                }
+                Debug.stopAllocCounting();
+                mAllocCount = Debug.getThreadAllocCount();
+            }
+        });
+        assertEquals("Objects allocated by " + ROUNDS * PICTURE_COUNT + " binds", 0, mAllocCount);
+    }
+
+    private static void runOnMainSync(final Runnable runnable) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runnable.run();
+                } finally {
+                    latch.countDown();
+                }
+            }
+        });
+        assertTrue("Main thread timed out", latch.await(10, TimeUnit.SECONDS));
+    }
+
+    private static class EmptyCallback implements PhotosAdapter.PhotosControlCallback {
+
+        @Override
+        public void onAddPhoto() {
+        }
+
+        @Override
+        public void onOrderChanged(UserPicture picture, int fromPosition, int toPosition) {
+        }
+
+        @Override
+        public void onOrderRebalanced() {
+        }
+
+        @Override
+        public void onOrderCommitted() {
+        }
+
+        @Override
+        public void onRemovePhoto(UserPicture picture) {
+        }
+
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.voltazor.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+
+/**
+ * Compares peak decode memory per tile of {@link ThumbnailDecoder} against the fit decode
+ * it replaced, over every bundled bitmap drawable.
+ */
+public class ThumbnailDecoderBenchmark extends AndroidTestCase {
+
+    private static final String TAG = "ThumbnailDecoderBench";
+    private static final int TILE_SIZE = ThumbnailCache.getSizeBucket(180);
+
+    public void testPeakMemory() throws Exception {
+        long baselineBytes = 0, decoderBytes = 0;
+        int sources = 0;
+        for (Field field : R.drawable.class.getFields()) {
+            byte[] data = read(field.getInt(null));
+            BitmapFactory.Options bounds = new BitmapFactory.Options();
+            bounds.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(data, 0, data.length, bounds);
+            // Xml drawables and sources already smaller than a tile are not interesting
+            if (Math.min(bounds.outWidth, bounds.outHeight) <= TILE_SIZE) {
+                continue;
+            }
+            long baseline = decodeFit(data, TILE_SIZE);
+            ThumbnailDecoder.Stats stats = new ThumbnailDecoder.Stats();
+            Bitmap bitmap = ThumbnailDecoder.decode(data, TILE_SIZE, Bitmap.Config.ARGB_8888, null, stats);
+            assertNotNull(field.getName(), bitmap);
+            assertEquals(TILE_SIZE, bitmap.getWidth());
+            assertEquals(TILE_SIZE, bitmap.getHeight());
+            bitmap.recycle();
+
+            Log.i(TAG, field.getName() + " " + bounds.outWidth + "x" + bounds.outHeight
+                    + ": fit " + baseline + " B, region " + stats.peakBytes + " B");
+            baselineBytes += baseline;
+            decoderBytes += stats.peakBytes;
+            sources++;
+        }
+        assertTrue("No sources larger than a tile", sources > 0);
+        float saved = 1f - (float) decoderBytes / baselineBytes;
+        Log.i(TAG, sources + " sources, peak memory saved " + Math.round(saved * 100) + "%");
+        assertTrue("Peak memory saved only " + saved, saved >= .5f);
+    }
+
+    /**
+     * The previous decode: power of two sampling by the longest side, then fit scaling
+     *
+     * @return peak bytes of bitmaps alive at the same time
+     */
+    private static long decodeFit(byte[] data, int size) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        int maxSide = Math.max(options.outWidth, options.outHeight);
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = 1;
+        while (maxSide / (options.inSampleSize * 2) >= size) {
+            options.inSampleSize *= 2;
+        }
+        Bitmap decoded = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        float scale = (float) size / Math.max(decoded.getWidth(), decoded.getHeight());
+        Bitmap scaled = Bitmap.createScaledBitmap(decoded, Math.max(1, Math.round(decoded.getWidth() * scale)),
+                Math.max(1, Math.round(decoded.getHeight() * scale)), true);
+        long peak = decoded.getByteCount() + (scaled != decoded ? scaled.getByteCount() : 0);
+        if (scaled != decoded) {
+            scaled.recycle();
+        }
+        decoded.recycle();
+        return peak;
+    }
+
+    private byte[] read(int id) throws IOException {
+        InputStream in = getContext().getResources().openRawResource(id);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+}
@@ -12,6 +12,11 @@ public class App extends Application {
     @Override
     public void onCreate() {
         super.onCreate();
-        Timber.plant(new Timber.DebugTree());
+        if (BuildConfig.DEBUG) {
+            // Release builds plant no tree, logs and the default metrics sink print nothing there
+            Timber.plant(new Timber.DebugTree());
+        }
+        Metrics.init(this);
+        ThumbnailCache.init(this);
     }
 }
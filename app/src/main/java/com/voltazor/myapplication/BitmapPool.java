@@ -0,0 +1,128 @@
+package com.voltazor.myapplication;
+
+import android.graphics.Bitmap;
+import android.util.LongSparseArray;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * Pool of mutable bitmaps keyed by exact size and config, feeds
+ * {@link android.graphics.BitmapFactory.Options#inBitmap} of thumbnail decodes.
+ * Grid tiles share the same square size, so exact keys give high hit rate on every API level.
+ * Hits, misses and reused bytes are reported to {@link Metrics} per period.
+ */
+public class BitmapPool implements Metrics.Source {
+
+    private final long mMaxBytes;
+    private long mBytes;
+
+    private final LongSparseArray<ArrayDeque<Bitmap>> mBitmaps = new LongSparseArray<>();
+    private final ArrayDeque<Bitmap> mLruOrder = new ArrayDeque<>();
+
+    private int mHitCount;
+    private int mMissCount;
+    private long mBytesSaved;
+
+    public BitmapPool(long maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Takes the bitmap for reuse, caller must not touch it afterwards
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        int size = bitmap.getByteCount();
+        if (size > mMaxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        long key = key(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        ArrayDeque<Bitmap> bitmaps = mBitmaps.get(key);
+        if (bitmaps == null) {
+            bitmaps = new ArrayDeque<>();
+            mBitmaps.put(key, bitmaps);
+        }
+        bitmaps.addLast(bitmap);
+        mLruOrder.addLast(bitmap);
+        mBytes += size;
+        trimToSize();
+    }
+
+    /**
+     * @return bitmap of exactly the given size and config with undefined content or null
+     */
+    @Nullable
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        ArrayDeque<Bitmap> bitmaps = mBitmaps.get(key(width, height, config));
+        Bitmap bitmap = bitmaps != null ? bitmaps.pollLast() : null;
+        if (bitmap == null) {
+            mMissCount++;
+            return null;
+        }
+        mLruOrder.removeLastOccurrence(bitmap);
+        int size = bitmap.getByteCount();
+        mBytes -= size;
+        mBytesSaved += size;
+        mHitCount++;
+        return bitmap;
+    }
+
+    public synchronized void clear() {
+        for (Bitmap bitmap : new ArrayList<>(mLruOrder)) {
+            bitmap.recycle();
+        }
+        mLruOrder.clear();
+        mBitmaps.clear();
+        mBytes = 0;
+    }
+
+    /**
+     * Reports hits, misses and bytes of bitmap memory which were reused instead of allocated, then resets them
+     */
+    @Override
+    public synchronized void report(Metrics.Sink sink) {
+        sink.onCounter("bitmap_pool.hit", mHitCount);
+        sink.onCounter("bitmap_pool.miss", mMissCount);
+        sink.onCounter("bitmap_pool.bytes_saved", mBytesSaved);
+        mHitCount = mMissCount = 0;
+        mBytesSaved = 0;
+    }
+
+    public synchronized long getSize() {
+        return mBytes;
+    }
+
+    private void trimToSize() {
+        while (mBytes > mMaxBytes && !mLruOrder.isEmpty()) {
+            Bitmap bitmap = mLruOrder.pollFirst();
+            ArrayDeque<Bitmap> bitmaps = mBitmaps.get(key(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig()));
+            if (bitmaps != null) {
+                bitmaps.remove(bitmap);
+            }
+            mBytes -= bitmap.getByteCount();
+            bitmap.recycle();
+        }
+    }
+
+    private static long key(int width, int height, Bitmap.Config config) {
+        int configKey = config != null ? config.ordinal() + 1 : 0;
+        return ((long) width << 32) | ((long) height << 8) | configKey;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BitmapPool{" +
+                "size=" + mBytes +
+                ", hits=" + mHitCount +
+                ", misses=" + mMissCount +
+                ", bytesSaved=" + mBytesSaved +
+                '}';
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.voltazor.myapplication;
+
+import androidx.annotation.Nullable;
+
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.Response;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+
+import okio.BufferedSink;
+import timber.log.Timber;
+
+/**
+ * Resumable upload of a file in chunks, following the tus protocol core:
+ * POST creates an upload of the given length, then PATCH requests append chunks at the offset
+ * the server confirmed. When a chunk fails, the offset is queried with HEAD and the upload
+ * resumes from there, so only the unconfirmed part is sent again. A failed query is retried
+ * the same way. A chunk the server accepts without moving the offset counts as failed,
+ * after {@link #MAX_ATTEMPTS} failed requests in a row the upload gives up.
+ * <p>
+ * Calls block, they're made from upload worker threads.
+ */
+class ChunkedUploader {
+
+    static final String PATH = "uploads";
+    static final String HEADER_UPLOAD_LENGTH = "Upload-Length";
+    static final String HEADER_UPLOAD_OFFSET = "Upload-Offset";
+    static final int MAX_ATTEMPTS = 5;
+
+    private static final MediaType OFFSET_OCTET_STREAM = MediaType.parse("application/offset+octet-stream");
+    private static final int CHUNK_SIZE = 256 * 1024;
+    private static final long RETRY_DELAY_MS = 1000;
+
+    private final OkHttpClient mClient;
+    private final String mUrl;
+    private final int mChunkSize;
+    private final long mRetryDelayMs;
+
+    ChunkedUploader(OkHttpClient client, String baseUrl) {
+        this(client, baseUrl, CHUNK_SIZE, RETRY_DELAY_MS);
+    }
+
+    ChunkedUploader(OkHttpClient client, String baseUrl, int chunkSize, long retryDelayMs) {
+        mClient = client;
+        mUrl = baseUrl + PATH;
+        mChunkSize = chunkSize;
+        mRetryDelayMs = retryDelayMs;
+    }
+
+    /**
+     * @return url of the finished upload
+     */
+    String upload(File file, @Nullable SourceFetcher.ProgressListener listener) throws IOException {
+        long length = file.length();
+        String location = create(length);
+        long offset = 0;
+        int attempt = 1;
+        boolean isResuming = false;
+        while (offset < length) {
+            try {
+                if (isResuming) {
+                    offset = queryOffset(location);
+                    isResuming = false;
+                } else {
+                    long confirmed = sendChunk(location, file, offset, Math.min(mChunkSize, length - offset), length, listener);
+                    if (confirmed <= offset) {
+                        // Accepted without progress, counts as a failed attempt so a stuck server can't loop forever
+                        throw new IOException("Chunk at " + offset + " confirmed " + confirmed);
+                    }
+                    attempt = 1;
+                    offset = confirmed;
+                }
+            } catch (IOException e) {
+                if (e instanceof InterruptedIOException || attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                Timber.w(e, "Upload %s failed at %d, attempt %d", location, offset, attempt);
+                sleep(mRetryDelayMs * attempt++);
+                isResuming = true;
+            }
+            if (listener != null) {
+                listener.onProgress(offset, length);
+            }
+        }
+        return location;
+    }
+
+    private String create(long length) throws IOException {
+        Request request = new Request.Builder()
+                .url(mUrl)
+                .header(HEADER_UPLOAD_LENGTH, String.valueOf(length))
+                .post(RequestBody.create(null, new byte[0]))
+                .build();
+        Response response = execute(request);
+        String location = response.header("Location");
+        if (location == null) {
+            throw new IOException("Upload created without location");
+        }
+        return new URL(new URL(mUrl), location).toString();
+    }
+
+    private long queryOffset(String location) throws IOException {
+        return parseOffset(execute(new Request.Builder().url(location).head().build()));
+    }
+
+    /**
+     * @return offset confirmed by the server after the chunk
+     */
+    private long sendChunk(String location, final File file, final long offset, final long count, final long length,
+                           @Nullable final SourceFetcher.ProgressListener listener) throws IOException {
+        RequestBody body = new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return OFFSET_OCTET_STREAM;
+            }
+
+            @Override
+            public long contentLength() {
+                return count;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                RandomAccessFile in = new RandomAccessFile(file, "r");
+                try {
+                    in.seek(offset);
+                    byte[] buffer = new byte[8192];
+                    long written = 0;
+                    while (written < count) {
+                        int read = in.read(buffer, 0, (int) Math.min(buffer.length, count - written));
+                        if (read == -1) {
+                            throw new IOException("File is shorter than expected");
+                        }
+                        sink.write(buffer, 0, read);
+                        written += read;
+                        if (listener != null) {
+                            listener.onProgress(offset + written, length);
+                        }
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+        };
+        Request request = new Request.Builder()
+                .url(location)
+                .header(HEADER_UPLOAD_OFFSET, String.valueOf(offset))
+                .method("PATCH", body)
+                .build();
+        return parseOffset(execute(request));
+    }
+
+    private Response execute(Request request) throws IOException {
+        Response response = mClient.newCall(request).execute();
+        response.body().close();
+        if (!response.isSuccessful()) {
+            throw new IOException(request.method() + " " + request.urlString() + " failed with " + response.code());
+        }
+        return response;
+    }
+
+    private static long parseOffset(Response response) throws IOException {
+        try {
+            return Long.parseLong(response.header(HEADER_UPLOAD_OFFSET));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid upload offset " + response.header(HEADER_UPLOAD_OFFSET));
+        }
+    }
+
+    private static void sleep(long delayMs) throws InterruptedIOException {
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Upload cancelled");
+        }
+    }
+
+}
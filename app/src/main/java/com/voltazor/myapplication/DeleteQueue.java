@@ -0,0 +1,190 @@
+package com.voltazor.myapplication;
+
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.Response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * Collects removed pictures and deletes them on the backend in one batch once no more pictures
+ * were removed for a short window. Until then removals can be {@link #undo() undone}.
+ * A batch carries an idempotency key, so a retried batch is applied once.
+ * <p>
+ * Removed pictures stay in the {@link PictureStore} until the backend answers for them, then they're purged.
+ * A batch which still fails after {@link #MAX_ATTEMPTS} is left there for {@link #sendRemoved()}.
+ */
+public class DeleteQueue {
+
+    static final String PATH = "pictures/delete";
+    static final String HEADER_IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final int MAX_ATTEMPTS = 3;
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final long WINDOW_MS = 4000;
+    private static final long RETRY_DELAY_MS = 2000;
+
+    private final OkHttpClient mClient;
+    private final String mUrl;
+    private final PictureStore mStore;
+    private final ScheduledExecutorService mExecutor;
+    private final long mWindowMs;
+    private final long mRetryDelayMs;
+
+    private final List<UserPicture> mPending = new ArrayList<>();
+    private ScheduledFuture<?> mScheduledFlush;
+
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            List<UserPicture> pictures;
+            synchronized (DeleteQueue.this) {
+                pictures = new ArrayList<>(mPending);
+                mPending.clear();
+                mScheduledFlush = null;
+            }
+            if (!pictures.isEmpty()) {
+                send(UUID.randomUUID().toString(), pictures, 1);
+            }
+        }
+    };
+
+    public DeleteQueue(OkHttpClient client, String baseUrl, PictureStore store) {
+        this(client, baseUrl, store, Executors.newSingleThreadScheduledExecutor(), WINDOW_MS, RETRY_DELAY_MS);
+    }
+
+    DeleteQueue(OkHttpClient client, String baseUrl, PictureStore store, ScheduledExecutorService executor,
+                long windowMs, long retryDelayMs) {
+        mClient = client;
+        mUrl = baseUrl + PATH;
+        mStore = store;
+        mExecutor = executor;
+        mWindowMs = windowMs;
+        mRetryDelayMs = retryDelayMs;
+    }
+
+    /**
+     * Queues the picture and restarts the window
+     *
+     * @return number of pictures waiting to be deleted
+     */
+    public synchronized int enqueue(UserPicture picture) {
+        mPending.add(picture);
+        if (mScheduledFlush != null) {
+            mScheduledFlush.cancel(false);
+        }
+        mScheduledFlush = mExecutor.schedule(mFlush, mWindowMs, TimeUnit.MILLISECONDS);
+        return mPending.size();
+    }
+
+    /**
+     * @return pictures which weren't sent yet, they are no longer deleted
+     */
+    public synchronized List<UserPicture> undo() {
+        if (mScheduledFlush != null) {
+            mScheduledFlush.cancel(false);
+            mScheduledFlush = null;
+        }
+        List<UserPicture> pictures = new ArrayList<>(mPending);
+        mPending.clear();
+        return pictures;
+    }
+
+    /**
+     * Sends queued pictures without waiting for the window to pass
+     */
+    public synchronized void flush() {
+        if (mScheduledFlush != null) {
+            mScheduledFlush.cancel(false);
+        }
+        mScheduledFlush = mExecutor.schedule(mFlush, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends pictures removed in earlier sessions whose deletion the backend never answered,
+     * pictures which can still be undone are left for their window
+     */
+    public void sendRemoved() {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<UserPicture> pictures = mStore.loadRemoved();
+                synchronized (DeleteQueue.this) {
+                    pictures.removeAll(mPending);
+                }
+                if (!pictures.isEmpty()) {
+                    send(UUID.randomUUID().toString(), pictures, 1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops accepting pictures, queued ones are still sent
+     */
+    public void shutdown() {
+        flush();
+        mExecutor.shutdown();
+    }
+
+    private void send(final String batchId, final List<UserPicture> pictures, final int attempt) {
+        Request request = new Request.Builder()
+                .url(mUrl)
+                .header(HEADER_IDEMPOTENCY_KEY, batchId)
+                .post(RequestBody.create(JSON, toJson(pictures)))
+                .build();
+        try {
+            Response response = mClient.newCall(request).execute();
+            response.body().close();
+            if (response.isSuccessful()) {
+                mStore.purge(pictures);
+                return;
+            }
+            if (response.code() < 500 && response.code() != 408 && response.code() != 429) {
+                // Sending it again gets the same answer
+                Timber.w("Delete batch %s rejected with %d", batchId, response.code());
+                mStore.purge(pictures);
+                return;
+            }
+            Timber.w("Delete batch %s failed with %d, attempt %d", batchId, response.code(), attempt);
+        } catch (IOException e) {
+            Timber.w(e, "Delete batch %s failed, attempt %d", batchId, attempt);
+        }
+        if (attempt < MAX_ATTEMPTS && !mExecutor.isShutdown()) {
+            mExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    send(batchId, pictures, attempt + 1);
+                }
+            }, mRetryDelayMs * attempt, TimeUnit.MILLISECONDS);
+        } else {
+            Timber.w("Delete batch %s left for the next session", batchId);
+        }
+    }
+
+    /**
+     * {"ids":[1,2,3]}
+     */
+    private static String toJson(List<UserPicture> pictures) {
+        StringBuilder json = new StringBuilder("{\"ids\":[");
+        for (int i = 0; i < pictures.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(pictures.get(i).getId());
+        }
+        return json.append("]}").toString();
+    }
+
+}
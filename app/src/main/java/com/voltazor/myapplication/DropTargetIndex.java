@@ -0,0 +1,285 @@
+package com.voltazor.myapplication;
+
+/**
+ * Uniform grid over the cached screen rectangles of drop targets.
+ * Cells are sized to a single grid span, so a thumb overlaps at most four cells
+ * (a bit more for the full span main photo) and a query only visits those cells.
+ * Queries and collision checks work on primitive arrays only and don't allocate
+ * once the index is built. Rectangles are kept in flat float arrays and can be
+ * {@link #offset(float, float) shifted} by scroll without rebuilding the grid.
+ */
+class DropTargetIndex {
+
+    public static final int NO_ENTRY = -1;
+
+    private float mCellSize;
+    private float mOriginX, mOriginY;
+    private int mColumns, mRows;
+    private int[] mCellHeads = new int[0];
+
+    private int mLinkCount;
+    private int[] mLinkEntry = new int[16];
+    private int[] mLinkNext = new int[16];
+
+    private int mEntryCount;
+    private int[] mPositions = new int[16];
+    private float[] mLeft = new float[16];
+    private float[] mTop = new float[16];
+    private float[] mRight = new float[16];
+    private float[] mBottom = new float[16];
+    private int[] mQueryMark = new int[16];
+    private int mQueryId;
+    private int[] mCandidates = new int[16];
+
+    private boolean isBuilt;
+
+    public void clear() {
+        mEntryCount = 0;
+        mLinkCount = 0;
+        isBuilt = false;
+    }
+
+    public int size() {
+        return mEntryCount;
+    }
+
+    /**
+     * Adds a target, the index must be {@link #build() built} again before querying.
+     *
+     * @return entry index of the added target
+     */
+    public int add(int position, float left, float top, float right, float bottom) {
+        ensureEntryCapacity(mEntryCount + 1);
+        int entry = mEntryCount++;
+        mPositions[entry] = position;
+        mLeft[entry] = left;
+        mTop[entry] = top;
+        mRight[entry] = right;
+        mBottom[entry] = bottom;
+        mQueryMark[entry] = 0;
+        isBuilt = false;
+        return entry;
+    }
+
+    public int getPosition(int entry) {
+        return mPositions[entry];
+    }
+
+    public float getLeft(int entry) {
+        return mLeft[entry];
+    }
+
+    public float getTop(int entry) {
+        return mTop[entry];
+    }
+
+    public float getRight(int entry) {
+        return mRight[entry];
+    }
+
+    public float getBottom(int entry) {
+        return mBottom[entry];
+    }
+
+    public boolean isBuilt() {
+        return isBuilt;
+    }
+
+    /**
+     * Buckets all added targets into cells. Cell size is taken from the smallest target,
+     * which is a single span tile of the grid.
+     */
+    public void build() {
+        mLinkCount = 0;
+        if (mEntryCount == 0) {
+            mColumns = mRows = 0;
+            isBuilt = true;
+            return;
+        }
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        float cellSize = Float.MAX_VALUE;
+        for (int i = 0; i < mEntryCount; i++) {
+            minX = Math.min(minX, mLeft[i]);
+            minY = Math.min(minY, mTop[i]);
+            maxX = Math.max(maxX, mRight[i]);
+            maxY = Math.max(maxY, mBottom[i]);
+            cellSize = Math.min(cellSize, Math.min(mRight[i] - mLeft[i], mBottom[i] - mTop[i]));
+        }
+        mCellSize = Math.max(1, cellSize);
+        mOriginX = minX;
+        mOriginY = minY;
+        mColumns = (int) ((maxX - minX) / mCellSize) + 1;
+        mRows = (int) ((maxY - minY) / mCellSize) + 1;
+
+        int cells = mColumns * mRows;
+        if (mCellHeads.length < cells) {
+            mCellHeads = new int[cells];
+        }
+        for (int i = 0; i < cells; i++) {
+            mCellHeads[i] = NO_ENTRY;
+        }
+        for (int entry = 0; entry < mEntryCount; entry++) {
+            int fromColumn = column(mLeft[entry]);
+            int toColumn = Math.min(mColumns - 1, lastColumn(mRight[entry]));
+            int fromRow = row(mTop[entry]);
+            int toRow = Math.min(mRows - 1, lastRow(mBottom[entry]));
+            for (int r = fromRow; r <= toRow; r++) {
+                for (int c = fromColumn; c <= toColumn; c++) {
+                    link(r * mColumns + c, entry);
+                }
+            }
+        }
+        if (mCandidates.length < mEntryCount) {
+            mCandidates = new int[mEntryCount];
+        }
+        isBuilt = true;
+    }
+
+    /**
+     * Picks the target the source rectangle should be dropped onto: among colliding
+     * targets the one with the largest intersection wins.
+     *
+     * @param excludedPosition position of the dragged item itself
+     * @return entry index of the chosen target or {@link #NO_ENTRY}
+     */
+    public int findDropTarget(float left, float top, float right, float bottom, int excludedPosition) {
+        int count = query(left, top, right, bottom, mCandidates);
+        float maxInterceptionSquare = 0;
+        int chosenEntry = NO_ENTRY;
+        for (int i = 0; i < count; i++) {
+            int entry = mCandidates[i];
+            if (mPositions[entry] != excludedPosition) {
+                float interceptionSquare = checkCollision(left, top, right, bottom, entry);
+                if (maxInterceptionSquare < interceptionSquare) {
+                    maxInterceptionSquare = interceptionSquare;
+                    chosenEntry = entry;
+                }
+            }
+        }
+        return chosenEntry;
+    }
+
+    /**
+     * @return intersection square of the source rectangle and the target
+     * if they collide enough to perform a drop, 0 otherwise
+     */
+    public float checkCollision(float left, float top, float right, float bottom, int entry) {
+        float sourceSquare = (right - left) * (bottom - top);
+        float targetSquare = (mRight[entry] - mLeft[entry]) * (mBottom[entry] - mTop[entry]);
+
+        float intersectionLeft = Math.max(left, mLeft[entry]);
+        float intersectionTop = Math.max(top, mTop[entry]);
+        float intersectionRight = Math.min(right, mRight[entry]);
+        float intersectionBottom = Math.min(bottom, mBottom[entry]);
+        if (intersectionLeft < intersectionRight && intersectionTop < intersectionBottom) {
+            float interceptionSquare = (intersectionRight - intersectionLeft) * (intersectionBottom - intersectionTop);
+            if (interceptionSquare > (targetSquare * .5f) || interceptionSquare > (sourceSquare * .5f)
+                    || (intersectionBottom < mBottom[entry] && intersectionTop > mTop[entry])) {
+                return interceptionSquare;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Collects entries whose cells overlap the given rectangle. Every entry is reported once.
+     *
+     * @param out receives entry indexes, should be at least {@link #size()} long
+     * @return number of entries written to {@code out}
+     */
+    public int query(float left, float top, float right, float bottom, int[] out) {
+        if (!isBuilt || mColumns == 0 || right <= left || bottom <= top) {
+            return 0;
+        }
+        int fromColumn = Math.max(0, column(left));
+        int toColumn = Math.min(mColumns - 1, lastColumn(right));
+        int fromRow = Math.max(0, row(top));
+        int toRow = Math.min(mRows - 1, lastRow(bottom));
+        if (fromColumn > toColumn || fromRow > toRow) {
+            return 0;
+        }
+        int queryId = ++mQueryId;
+        int count = 0;
+        for (int r = fromRow; r <= toRow; r++) {
+            for (int c = fromColumn; c <= toColumn; c++) {
+                for (int link = mCellHeads[r * mColumns + c]; link != NO_ENTRY; link = mLinkNext[link]) {
+                    int entry = mLinkEntry[link];
+                    if (mQueryMark[entry] != queryId && count < out.length) {
+                        mQueryMark[entry] = queryId;
+                        out[count++] = entry;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Shifts all targets, e.g. by the scroll of their list. Cells move along, so the index stays built.
+     */
+    public void offset(float dx, float dy) {
+        for (int entry = 0; entry < mEntryCount; entry++) {
+            mLeft[entry] += dx;
+            mTop[entry] += dy;
+            mRight[entry] += dx;
+            mBottom[entry] += dy;
+        }
+        mOriginX += dx;
+        mOriginY += dy;
+    }
+
+    private int column(float x) {
+        return (int) Math.floor((x - mOriginX) / mCellSize);
+    }
+
+    private int row(float y) {
+        return (int) Math.floor((y - mOriginY) / mCellSize);
+    }
+
+    /**
+     * Right and bottom edges are exclusive, an edge lying on a cell border doesn't reach the next cell
+     */
+    private int lastColumn(float right) {
+        return (int) Math.ceil((right - mOriginX) / mCellSize) - 1;
+    }
+
+    private int lastRow(float bottom) {
+        return (int) Math.ceil((bottom - mOriginY) / mCellSize) - 1;
+    }
+
+    private void link(int cell, int entry) {
+        if (mLinkCount == mLinkEntry.length) {
+            mLinkEntry = grow(mLinkEntry, mLinkCount * 2);
+            mLinkNext = grow(mLinkNext, mLinkCount * 2);
+        }
+        mLinkEntry[mLinkCount] = entry;
+        mLinkNext[mLinkCount] = mCellHeads[cell];
+        mCellHeads[cell] = mLinkCount++;
+    }
+
+    private void ensureEntryCapacity(int capacity) {
+        if (capacity > mPositions.length) {
+            int size = Math.max(capacity, mPositions.length * 2);
+            mPositions = grow(mPositions, size);
+            mLeft = grow(mLeft, size);
+            mTop = grow(mTop, size);
+            mRight = grow(mRight, size);
+            mBottom = grow(mBottom, size);
+            mQueryMark = grow(mQueryMark, size);
+        }
+    }
+
+    private static int[] grow(int[] array, int size) {
+        int[] result = new int[size];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    private static float[] grow(float[] array, int size) {
+        float[] result = new float[size];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+}
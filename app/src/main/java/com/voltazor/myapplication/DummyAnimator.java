@@ -1,237 +1,95 @@
 package com.voltazor.myapplication;
 
+import android.view.Choreographer;
 import android.view.View;
 
 import androidx.annotation.NonNull;
-import androidx.core.view.ViewCompat;
-import androidx.core.view.ViewPropertyAnimatorCompat;
-import androidx.core.view.ViewPropertyAnimatorListener;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.SimpleItemAnimator;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Created by voltazor on 10/05/16.
+ * <p>
+ * Runs item animations from a pooled {@link ItemAnimationScheduler}, which is ticked once per frame
+ * by a single {@link Choreographer} callback, instead of a view property animation with its own
+ * listener per item. Removals go first, then moves and changes, then additions, same as the default animator.
  */
-public class DummyAnimator extends SimpleItemAnimator {
+public class DummyAnimator extends SimpleItemAnimator implements Choreographer.FrameCallback,
+        ItemAnimationScheduler.Renderer<RecyclerView.ViewHolder> {
 
-    private ArrayList<RecyclerView.ViewHolder> mPendingRemovals = new ArrayList<>();
-    private ArrayList<RecyclerView.ViewHolder> mPendingAdditions = new ArrayList<>();
-    private ArrayList<MoveInfo> mPendingMoves = new ArrayList<>();
-    private ArrayList<ChangeInfo> mPendingChanges = new ArrayList<>();
+    private static final long NANOS_PER_MILLI = 1000000;
 
-    private ArrayList<ArrayList<RecyclerView.ViewHolder>> mAdditionsList = new ArrayList<>();
-    private ArrayList<ArrayList<MoveInfo>> mMovesList = new ArrayList<>();
-    private ArrayList<ArrayList<ChangeInfo>> mChangesList = new ArrayList<>();
+    private final ItemAnimationScheduler<RecyclerView.ViewHolder> mScheduler = new ItemAnimationScheduler<>(this);
+    private final long[] mDelays = new long[ItemAnimationScheduler.TYPE_COUNT];
+    private boolean isFrameScheduled;
 
-    private ArrayList<RecyclerView.ViewHolder> mAddAnimations = new ArrayList<>();
-    private ArrayList<RecyclerView.ViewHolder> mMoveAnimations = new ArrayList<>();
-    private ArrayList<RecyclerView.ViewHolder> mRemoveAnimations = new ArrayList<>();
-    private ArrayList<RecyclerView.ViewHolder> mChangeAnimations = new ArrayList<>();
-
-    private static class MoveInfo {
-        public RecyclerView.ViewHolder holder;
-        public int fromX, fromY, toX, toY;
-
-        private MoveInfo(RecyclerView.ViewHolder holder, int fromX, int fromY, int toX, int toY) {
-            this.holder = holder;
-            this.fromX = fromX;
-            this.fromY = fromY;
-            this.toX = toX;
-            this.toY = toY;
-        }
-    }
-
-    private static class ChangeInfo {
-        public RecyclerView.ViewHolder oldHolder, newHolder;
-        public int fromX, fromY, toX, toY;
-        private ChangeInfo(RecyclerView.ViewHolder oldHolder, RecyclerView.ViewHolder newHolder) {
-            this.oldHolder = oldHolder;
-            this.newHolder = newHolder;
+    @Override
+    public void runPendingAnimations() {
+        if (!mScheduler.hasPending()) {
+            // nothing to animate
+            return;
         }
+        Metrics.get().getFrameMonitor().begin(FrameMonitor.PHASE_REORDER);
+        boolean removalsPending = mScheduler.getPendingCount(ItemAnimationScheduler.TYPE_REMOVE) != 0;
+        boolean movesPending = mScheduler.getPendingCount(ItemAnimationScheduler.TYPE_MOVE) != 0;
+        boolean changesPending = mScheduler.getPendingCount(ItemAnimationScheduler.TYPE_CHANGE_OLD) != 0
+                || mScheduler.getPendingCount(ItemAnimationScheduler.TYPE_CHANGE_NEW) != 0;
+        long removeDuration = removalsPending ? getRemoveDuration() : 0;
+        long moveDuration = movesPending ? getMoveDuration() : 0;
+        long changeDuration = changesPending ? getChangeDuration() : 0;
 
-        private ChangeInfo(RecyclerView.ViewHolder oldHolder, RecyclerView.ViewHolder newHolder,
-                           int fromX, int fromY, int toX, int toY) {
-            this(oldHolder, newHolder);
-            this.fromX = fromX;
-            this.fromY = fromY;
-            this.toX = toX;
-            this.toY = toY;
-        }
+        mDelays[ItemAnimationScheduler.TYPE_REMOVE] = 0;
+        // Moves and changes run in parallel once removals are done, additions go last
+        mDelays[ItemAnimationScheduler.TYPE_MOVE] = removeDuration * NANOS_PER_MILLI;
+        mDelays[ItemAnimationScheduler.TYPE_CHANGE_OLD] = removeDuration * NANOS_PER_MILLI;
+        mDelays[ItemAnimationScheduler.TYPE_CHANGE_NEW] = removeDuration * NANOS_PER_MILLI;
+        mDelays[ItemAnimationScheduler.TYPE_ADD] = (removeDuration + Math.max(moveDuration, changeDuration)) * NANOS_PER_MILLI;
+        mScheduler.startPending(mDelays);
 
-        @Override
-        public String toString() {
-            return "ChangeInfo{" +
-                    "oldHolder=" + oldHolder +
-                    ", newHolder=" + newHolder +
-                    ", fromX=" + fromX +
-                    ", fromY=" + fromY +
-                    ", toX=" + toX +
-                    ", toY=" + toY +
-                    '}';
+        if (!isFrameScheduled) {
+            isFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
         }
     }
 
     @Override
-    public void runPendingAnimations() {
-        boolean removalsPending = !mPendingRemovals.isEmpty();
-        boolean movesPending = !mPendingMoves.isEmpty();
-        boolean changesPending = !mPendingChanges.isEmpty();
-        boolean additionsPending = !mPendingAdditions.isEmpty();
-        if (!removalsPending && !movesPending && !additionsPending && !changesPending) {
-            // nothing to animate
-            return;
-        }
-        // First, remove stuff
-        for (RecyclerView.ViewHolder holder : mPendingRemovals) {
-            animateRemoveImpl(holder);
-        }
-        mPendingRemovals.clear();
-        // Next, move stuff
-        if (movesPending) {
-            final ArrayList<MoveInfo> moves = new ArrayList<>();
-            moves.addAll(mPendingMoves);
-            mMovesList.add(moves);
-            mPendingMoves.clear();
-            Runnable mover = new Runnable() {
-                @Override
-                public void run() {
-                    for (MoveInfo moveInfo : moves) {
-                        animateMoveImpl(moveInfo.holder, moveInfo.fromX, moveInfo.fromY,
-                                moveInfo.toX, moveInfo.toY);
-                    }
-                    moves.clear();
-                    mMovesList.remove(moves);
-                }
-            };
-            if (removalsPending) {
-                View view = moves.get(0).holder.itemView;
-                ViewCompat.postOnAnimationDelayed(view, mover, getRemoveDuration());
-            } else {
-                mover.run();
-            }
-        }
-        // Next, change stuff, to run in parallel with move animations
-        if (changesPending) {
-            final ArrayList<ChangeInfo> changes = new ArrayList<>();
-            changes.addAll(mPendingChanges);
-            mChangesList.add(changes);
-            mPendingChanges.clear();
-            Runnable changer = new Runnable() {
-                @Override
-                public void run() {
-                    for (ChangeInfo change : changes) {
-                        animateChangeImpl(change);
-                    }
-                    changes.clear();
-                    mChangesList.remove(changes);
-                }
-            };
-            if (removalsPending) {
-                RecyclerView.ViewHolder holder = changes.get(0).oldHolder;
-                ViewCompat.postOnAnimationDelayed(holder.itemView, changer, getRemoveDuration());
-            } else {
-                changer.run();
-            }
-        }
-        // Next, add stuff
-        if (additionsPending) {
-            final ArrayList<RecyclerView.ViewHolder> additions = new ArrayList<>();
-            additions.addAll(mPendingAdditions);
-            mAdditionsList.add(additions);
-            mPendingAdditions.clear();
-            Runnable adder = new Runnable() {
-                public void run() {
-                    for (RecyclerView.ViewHolder holder : additions) {
-                        animateAddImpl(holder);
-                    }
-                    additions.clear();
-                    mAdditionsList.remove(additions);
-                }
-            };
-            if (removalsPending || movesPending || changesPending) {
-                long removeDuration = removalsPending ? getRemoveDuration() : 0;
-                long moveDuration = movesPending ? getMoveDuration() : 0;
-                long changeDuration = changesPending ? getChangeDuration() : 0;
-                long totalDelay = removeDuration + Math.max(moveDuration, changeDuration);
-                View view = additions.get(0).itemView;
-                ViewCompat.postOnAnimationDelayed(view, adder, totalDelay);
-            } else {
-                adder.run();
-            }
+    public void doFrame(long frameTimeNanos) {
+        isFrameScheduled = false;
+        if (mScheduler.tick(frameTimeNanos)) {
+            isFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
         }
+        dispatchFinishedWhenDone();
     }
 
     @Override
     public boolean animateRemove(final RecyclerView.ViewHolder holder) {
         resetAnimation(holder);
-        mPendingRemovals.add(holder);
+        View view = holder.itemView;
+        mScheduler.schedule(holder, ItemAnimationScheduler.TYPE_REMOVE, getRemoveDuration() * NANOS_PER_MILLI,
+                view.getTranslationX(), view.getTranslationY(), view.getAlpha(),
+                view.getTranslationX(), view.getTranslationY(), 0);
         return true;
     }
 
-    private void animateRemoveImpl(final RecyclerView.ViewHolder holder) {
-        final View view = holder.itemView;
-        final ViewPropertyAnimatorCompat animation = ViewCompat.animate(view);
-        mRemoveAnimations.add(holder);
-        animation.setDuration(getRemoveDuration())
-                .alpha(0).setListener(new VpaListenerAdapter() {
-            @Override
-            public void onAnimationStart(View view) {
-                dispatchRemoveStarting(holder);
-            }
-
-            @Override
-            public void onAnimationEnd(View view) {
-                animation.setListener(null);
-                ViewCompat.setAlpha(view, 1);
-                dispatchRemoveFinished(holder);
-                mRemoveAnimations.remove(holder);
-                dispatchFinishedWhenDone();
-            }
-        }).start();
-    }
-
     @Override
     public boolean animateAdd(final RecyclerView.ViewHolder holder) {
         resetAnimation(holder);
-        ViewCompat.setAlpha(holder.itemView, 0);
-        mPendingAdditions.add(holder);
+        View view = holder.itemView;
+        mScheduler.schedule(holder, ItemAnimationScheduler.TYPE_ADD, getAddDuration() * NANOS_PER_MILLI,
+                view.getTranslationX(), view.getTranslationY(), 0,
+                view.getTranslationX(), view.getTranslationY(), 1);
         return true;
     }
 
-    private void animateAddImpl(final RecyclerView.ViewHolder holder) {
-        final View view = holder.itemView;
-        final ViewPropertyAnimatorCompat animation = ViewCompat.animate(view);
-        mAddAnimations.add(holder);
-        animation.alpha(1).setDuration(getAddDuration()).
-                setListener(new VpaListenerAdapter() {
-                    @Override
-                    public void onAnimationStart(View view) {
-                        dispatchAddStarting(holder);
-                    }
-                    @Override
-                    public void onAnimationCancel(View view) {
-                        ViewCompat.setAlpha(view, 1);
-                    }
-
-                    @Override
-                    public void onAnimationEnd(View view) {
-                        animation.setListener(null);
-                        dispatchAddFinished(holder);
-                        mAddAnimations.remove(holder);
-                        dispatchFinishedWhenDone();
-                    }
-                }).start();
-    }
-
     @Override
     public boolean animateMove(final RecyclerView.ViewHolder holder, int fromX, int fromY,
                                int toX, int toY) {
         final View view = holder.itemView;
-        fromX += ViewCompat.getTranslationX(holder.itemView);
-        fromY += ViewCompat.getTranslationY(holder.itemView);
+        fromX += view.getTranslationX();
+        fromY += view.getTranslationY();
         resetAnimation(holder);
         int deltaX = toX - fromX;
         int deltaY = toY - fromY;
@@ -239,57 +97,13 @@ public class DummyAnimator extends SimpleItemAnimator {
             dispatchMoveFinished(holder);
             return false;
         }
-        if (holder.getAdapterPosition() != 0) {
-            if (deltaX != 0) {
-                ViewCompat.setTranslationX(view, -deltaX);
-            }
-            if (deltaY != 0) {
-                ViewCompat.setTranslationY(view, -deltaY);
-            }
-        }
-        mPendingMoves.add(new MoveInfo(holder, fromX, fromY, toX, toY));
+        // Main photo is swapped by the adapter's own animation, it only jumps into place
+        boolean isSlid = holder.getAdapterPosition() != 0;
+        mScheduler.schedule(holder, ItemAnimationScheduler.TYPE_MOVE, getMoveDuration() * NANOS_PER_MILLI,
+                isSlid ? -deltaX : 0, isSlid ? -deltaY : 0, view.getAlpha(), 0, 0, view.getAlpha());
         return true;
     }
 
-    private void animateMoveImpl(final RecyclerView.ViewHolder holder, int fromX, int fromY, int toX, int toY) {
-        final View view = holder.itemView;
-        final int deltaX = toX - fromX;
-        final int deltaY = toY - fromY;
-        if (deltaX != 0) {
-            ViewCompat.animate(view).translationX(0);
-        }
-        if (deltaY != 0) {
-            ViewCompat.animate(view).translationY(0);
-        }
-        // TODO: make EndActions end listeners instead, since end actions aren't called when
-        // vpas are canceled (and can't end them. why?)
-        // need listener functionality in VPACompat for this. Ick.
-        final ViewPropertyAnimatorCompat animation = ViewCompat.animate(view);
-        mMoveAnimations.add(holder);
-        animation.setDuration(getMoveDuration()).setListener(new VpaListenerAdapter() {
-            @Override
-            public void onAnimationStart(View view) {
-                dispatchMoveStarting(holder);
-            }
-            @Override
-            public void onAnimationCancel(View view) {
-                if (deltaX != 0) {
-                    ViewCompat.setTranslationX(view, 0);
-                }
-                if (deltaY != 0) {
-                    ViewCompat.setTranslationY(view, 0);
-                }
-            }
-            @Override
-            public void onAnimationEnd(View view) {
-                animation.setListener(null);
-                dispatchMoveFinished(holder);
-                mMoveAnimations.remove(holder);
-                dispatchFinishedWhenDone();
-            }
-        }).start();
-    }
-
     @Override
     public boolean animateChange(RecyclerView.ViewHolder oldHolder, RecyclerView.ViewHolder newHolder,
                                  int fromX, int fromY, int toX, int toY) {
@@ -298,196 +112,92 @@ public class DummyAnimator extends SimpleItemAnimator {
             // run a move animation to handle position changes.
             return animateMove(oldHolder, fromX, fromY, toX, toY);
         }
-        final float prevTranslationX = ViewCompat.getTranslationX(oldHolder.itemView);
-        final float prevTranslationY = ViewCompat.getTranslationY(oldHolder.itemView);
-        final float prevAlpha = ViewCompat.getAlpha(oldHolder.itemView);
+        final float prevTranslationX = oldHolder.itemView.getTranslationX();
+        final float prevTranslationY = oldHolder.itemView.getTranslationY();
+        final float prevAlpha = oldHolder.itemView.getAlpha();
         resetAnimation(oldHolder);
         int deltaX = (int) (toX - fromX - prevTranslationX);
         int deltaY = (int) (toY - fromY - prevTranslationY);
-        // recover prev translation state after ending animation
-        ViewCompat.setTranslationX(oldHolder.itemView, prevTranslationX);
-        ViewCompat.setTranslationY(oldHolder.itemView, prevTranslationY);
-        ViewCompat.setAlpha(oldHolder.itemView, prevAlpha);
+        long duration = getChangeDuration() * NANOS_PER_MILLI;
+        // Old view keeps its previous translation state and fades out towards the new position
+        mScheduler.schedule(oldHolder, ItemAnimationScheduler.TYPE_CHANGE_OLD, duration,
+                prevTranslationX, prevTranslationY, prevAlpha, toX - fromX, toY - fromY, 0);
         if (newHolder != null) {
             // carry over translation values
             resetAnimation(newHolder);
-            ViewCompat.setTranslationX(newHolder.itemView, -deltaX);
-            ViewCompat.setTranslationY(newHolder.itemView, -deltaY);
-            ViewCompat.setAlpha(newHolder.itemView, 0);
+            mScheduler.schedule(newHolder, ItemAnimationScheduler.TYPE_CHANGE_NEW, duration,
+                    -deltaX, -deltaY, 0, 0, 0, 1);
         }
-        mPendingChanges.add(new ChangeInfo(oldHolder, newHolder, fromX, fromY, toX, toY));
         return true;
     }
 
-    private void animateChangeImpl(final ChangeInfo changeInfo) {
-        final RecyclerView.ViewHolder holder = changeInfo.oldHolder;
-        final View view = holder == null ? null : holder.itemView;
-        final RecyclerView.ViewHolder newHolder = changeInfo.newHolder;
-        final View newView = newHolder != null ? newHolder.itemView : null;
-        if (view != null) {
-            final ViewPropertyAnimatorCompat oldViewAnim = ViewCompat.animate(view).setDuration(
-                    getChangeDuration());
-            mChangeAnimations.add(changeInfo.oldHolder);
-            oldViewAnim.translationX(changeInfo.toX - changeInfo.fromX);
-            oldViewAnim.translationY(changeInfo.toY - changeInfo.fromY);
-            oldViewAnim.alpha(0).setListener(new VpaListenerAdapter() {
-                @Override
-                public void onAnimationStart(View view) {
-                    dispatchChangeStarting(changeInfo.oldHolder, true);
-                }
-
-                @Override
-                public void onAnimationEnd(View view) {
-                    oldViewAnim.setListener(null);
-                    ViewCompat.setAlpha(view, 1);
-                    ViewCompat.setTranslationX(view, 0);
-                    ViewCompat.setTranslationY(view, 0);
-                    dispatchChangeFinished(changeInfo.oldHolder, true);
-                    mChangeAnimations.remove(changeInfo.oldHolder);
-                    dispatchFinishedWhenDone();
-                }
-            }).start();
-        }
-        if (newView != null) {
-            final ViewPropertyAnimatorCompat newViewAnimation = ViewCompat.animate(newView);
-            mChangeAnimations.add(changeInfo.newHolder);
-            newViewAnimation.translationX(0).translationY(0).setDuration(getChangeDuration()).
-                    alpha(1).setListener(new VpaListenerAdapter() {
-                @Override
-                public void onAnimationStart(View view) {
-                    dispatchChangeStarting(changeInfo.newHolder, false);
-                }
-                @Override
-                public void onAnimationEnd(View view) {
-                    newViewAnimation.setListener(null);
-                    ViewCompat.setAlpha(newView, 1);
-                    ViewCompat.setTranslationX(newView, 0);
-                    ViewCompat.setTranslationY(newView, 0);
-                    dispatchChangeFinished(changeInfo.newHolder, false);
-                    mChangeAnimations.remove(changeInfo.newHolder);
-                    dispatchFinishedWhenDone();
-                }
-            }).start();
+    @Override
+    public void onStarted(RecyclerView.ViewHolder holder, int type) {
+        switch (type) {
+            case ItemAnimationScheduler.TYPE_REMOVE:
+                dispatchRemoveStarting(holder);
+                break;
+            case ItemAnimationScheduler.TYPE_MOVE:
+                dispatchMoveStarting(holder);
+                break;
+            case ItemAnimationScheduler.TYPE_CHANGE_OLD:
+                dispatchChangeStarting(holder, true);
+                break;
+            case ItemAnimationScheduler.TYPE_CHANGE_NEW:
+                dispatchChangeStarting(holder, false);
+                break;
+            case ItemAnimationScheduler.TYPE_ADD:
+                dispatchAddStarting(holder);
+                break;
         }
     }
 
-    private void endChangeAnimation(List<ChangeInfo> infoList, RecyclerView.ViewHolder item) {
-        for (int i = infoList.size() - 1; i >= 0; i--) {
-            ChangeInfo changeInfo = infoList.get(i);
-            if (endChangeAnimationIfNecessary(changeInfo, item)) {
-                if (changeInfo.oldHolder == null && changeInfo.newHolder == null) {
-                    infoList.remove(changeInfo);
-                }
-            }
-        }
+    @Override
+    public void onUpdate(RecyclerView.ViewHolder holder, float translationX, float translationY, float alpha) {
+        View view = holder.itemView;
+        view.setTranslationX(translationX);
+        view.setTranslationY(translationY);
+        view.setAlpha(alpha);
     }
 
-    private void endChangeAnimationIfNecessary(ChangeInfo changeInfo) {
-        if (changeInfo.oldHolder != null) {
-            endChangeAnimationIfNecessary(changeInfo, changeInfo.oldHolder);
-        }
-        if (changeInfo.newHolder != null) {
-            endChangeAnimationIfNecessary(changeInfo, changeInfo.newHolder);
-        }
-    }
-    private boolean endChangeAnimationIfNecessary(ChangeInfo changeInfo, RecyclerView.ViewHolder item) {
-        boolean oldItem = false;
-        if (changeInfo.newHolder == item) {
-            changeInfo.newHolder = null;
-        } else if (changeInfo.oldHolder == item) {
-            changeInfo.oldHolder = null;
-            oldItem = true;
-        } else {
-            return false;
+    @Override
+    public void onFinished(RecyclerView.ViewHolder holder, int type) {
+        View view = holder.itemView;
+        switch (type) {
+            case ItemAnimationScheduler.TYPE_REMOVE:
+                view.setAlpha(1);
+                dispatchRemoveFinished(holder);
+                break;
+            case ItemAnimationScheduler.TYPE_MOVE:
+                dispatchMoveFinished(holder);
+                break;
+            case ItemAnimationScheduler.TYPE_CHANGE_OLD:
+            case ItemAnimationScheduler.TYPE_CHANGE_NEW:
+                view.setAlpha(1);
+                view.setTranslationX(0);
+                view.setTranslationY(0);
+                dispatchChangeFinished(holder, type == ItemAnimationScheduler.TYPE_CHANGE_OLD);
+                break;
+            case ItemAnimationScheduler.TYPE_ADD:
+                dispatchAddFinished(holder);
+                break;
         }
-        ViewCompat.setAlpha(item.itemView, 1);
-        ViewCompat.setTranslationX(item.itemView, 0);
-        ViewCompat.setTranslationY(item.itemView, 0);
-        dispatchChangeFinished(item, oldItem);
-        return true;
     }
 
     @Override
     public void endAnimation(RecyclerView.ViewHolder item) {
-        final View view = item.itemView;
-        // this will trigger end callback which should set properties to their target values.
-        ViewCompat.animate(view).cancel();
-        // TODO if some other animations are chained to end, how do we cancel them as well?
-        for (int i = mPendingMoves.size() - 1; i >= 0; i--) {
-            MoveInfo moveInfo = mPendingMoves.get(i);
-            if (moveInfo.holder == item) {
-                ViewCompat.setTranslationY(view, 0);
-                ViewCompat.setTranslationX(view, 0);
-                dispatchMoveFinished(item);
-                mPendingMoves.remove(i);
-            }
-        }
-        endChangeAnimation(mPendingChanges, item);
-        if (mPendingRemovals.remove(item)) {
-            ViewCompat.setAlpha(view, 1);
-            dispatchRemoveFinished(item);
-        }
-        if (mPendingAdditions.remove(item)) {
-            ViewCompat.setAlpha(view, 1);
-            dispatchAddFinished(item);
-        }
-
-        for (int i = mChangesList.size() - 1; i >= 0; i--) {
-            ArrayList<ChangeInfo> changes = mChangesList.get(i);
-            endChangeAnimation(changes, item);
-            if (changes.isEmpty()) {
-                mChangesList.remove(i);
-            }
+        if (mScheduler.end(item)) {
+            dispatchFinishedWhenDone();
         }
-        for (int i = mMovesList.size() - 1; i >= 0; i--) {
-            ArrayList<MoveInfo> moves = mMovesList.get(i);
-            for (int j = moves.size() - 1; j >= 0; j--) {
-                MoveInfo moveInfo = moves.get(j);
-                if (moveInfo.holder == item) {
-                    ViewCompat.setTranslationY(view, 0);
-                    ViewCompat.setTranslationX(view, 0);
-                    dispatchMoveFinished(item);
-                    moves.remove(j);
-                    if (moves.isEmpty()) {
-                        mMovesList.remove(i);
-                    }
-                    break;
-                }
-            }
-        }
-        for (int i = mAdditionsList.size() - 1; i >= 0; i--) {
-            ArrayList<RecyclerView.ViewHolder> additions = mAdditionsList.get(i);
-            if (additions.remove(item)) {
-                ViewCompat.setAlpha(view, 1);
-                dispatchAddFinished(item);
-                if (additions.isEmpty()) {
-                    mAdditionsList.remove(i);
-                }
-            }
-        }
-        dispatchFinishedWhenDone();
     }
 
     private void resetAnimation(RecyclerView.ViewHolder holder) {
-        AnimatorCompatHelper.clearInterpolator(holder.itemView);
         endAnimation(holder);
     }
 
-
-
     @Override
     public boolean isRunning() {
-        return (!mPendingAdditions.isEmpty() ||
-                !mPendingChanges.isEmpty() ||
-                !mPendingMoves.isEmpty() ||
-                !mPendingRemovals.isEmpty() ||
-                !mMoveAnimations.isEmpty() ||
-                !mRemoveAnimations.isEmpty() ||
-                !mAddAnimations.isEmpty() ||
-                !mChangeAnimations.isEmpty() ||
-                !mMovesList.isEmpty() ||
-                !mAdditionsList.isEmpty() ||
-                !mChangesList.isEmpty());
+        return mScheduler.isRunning();
     }
 
     /**
@@ -497,102 +207,22 @@ public class DummyAnimator extends SimpleItemAnimator {
      */
     private void dispatchFinishedWhenDone() {
         if (!isRunning()) {
+            Metrics.get().getFrameMonitor().end(FrameMonitor.PHASE_REORDER);
             dispatchAnimationsFinished();
         }
     }
 
     @Override
     public void endAnimations() {
-        int count = mPendingMoves.size();
-        for (int i = count - 1; i >= 0; i--) {
-            MoveInfo item = mPendingMoves.get(i);
-            View view = item.holder.itemView;
-            ViewCompat.setTranslationY(view, 0);
-            ViewCompat.setTranslationX(view, 0);
-            dispatchMoveFinished(item.holder);
-            mPendingMoves.remove(i);
+        mScheduler.endAll();
+        if (isFrameScheduled) {
+            isFrameScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
         }
-        count = mPendingRemovals.size();
-        for (int i = count - 1; i >= 0; i--) {
-            RecyclerView.ViewHolder item = mPendingRemovals.get(i);
-            dispatchRemoveFinished(item);
-            mPendingRemovals.remove(i);
-        }
-        count = mPendingAdditions.size();
-        for (int i = count - 1; i >= 0; i--) {
-            RecyclerView.ViewHolder item = mPendingAdditions.get(i);
-            View view = item.itemView;
-            ViewCompat.setAlpha(view, 1);
-            dispatchAddFinished(item);
-            mPendingAdditions.remove(i);
-        }
-        count = mPendingChanges.size();
-        for (int i = count - 1; i >= 0; i--) {
-            endChangeAnimationIfNecessary(mPendingChanges.get(i));
-        }
-        mPendingChanges.clear();
-        if (!isRunning()) {
-            return;
-        }
-
-        int listCount = mMovesList.size();
-        for (int i = listCount - 1; i >= 0; i--) {
-            ArrayList<MoveInfo> moves = mMovesList.get(i);
-            count = moves.size();
-            for (int j = count - 1; j >= 0; j--) {
-                MoveInfo moveInfo = moves.get(j);
-                RecyclerView.ViewHolder item = moveInfo.holder;
-                View view = item.itemView;
-                ViewCompat.setTranslationY(view, 0);
-                ViewCompat.setTranslationX(view, 0);
-                dispatchMoveFinished(moveInfo.holder);
-                moves.remove(j);
-                if (moves.isEmpty()) {
-                    mMovesList.remove(moves);
-                }
-            }
-        }
-        listCount = mAdditionsList.size();
-        for (int i = listCount - 1; i >= 0; i--) {
-            ArrayList<RecyclerView.ViewHolder> additions = mAdditionsList.get(i);
-            count = additions.size();
-            for (int j = count - 1; j >= 0; j--) {
-                RecyclerView.ViewHolder item = additions.get(j);
-                View view = item.itemView;
-                ViewCompat.setAlpha(view, 1);
-                dispatchAddFinished(item);
-                additions.remove(j);
-                if (additions.isEmpty()) {
-                    mAdditionsList.remove(additions);
-                }
-            }
-        }
-        listCount = mChangesList.size();
-        for (int i = listCount - 1; i >= 0; i--) {
-            ArrayList<ChangeInfo> changes = mChangesList.get(i);
-            count = changes.size();
-            for (int j = count - 1; j >= 0; j--) {
-                endChangeAnimationIfNecessary(changes.get(j));
-                if (changes.isEmpty()) {
-                    mChangesList.remove(changes);
-                }
-            }
-        }
-
-        cancelAll(mRemoveAnimations);
-        cancelAll(mMoveAnimations);
-        cancelAll(mAddAnimations);
-        cancelAll(mChangeAnimations);
-
+        Metrics.get().getFrameMonitor().end(FrameMonitor.PHASE_REORDER);
         dispatchAnimationsFinished();
     }
 
-    void cancelAll(List<RecyclerView.ViewHolder> viewHolders) {
-        for (int i = viewHolders.size() - 1; i >= 0; i--) {
-            ViewCompat.animate(viewHolders.get(i).itemView).cancel();
-        }
-    }
-
     /**
      * {@inheritDoc}
      * <p>
@@ -615,15 +245,4 @@ public class DummyAnimator extends SimpleItemAnimator {
         return !payloads.isEmpty() || super.canReuseUpdatedViewHolder(viewHolder, payloads);
     }
 
-    private static class VpaListenerAdapter implements ViewPropertyAnimatorListener {
-        @Override
-        public void onAnimationStart(View view) {}
-
-        @Override
-        public void onAnimationEnd(View view) {}
-
-        @Override
-        public void onAnimationCancel(View view) {}
-    }
-
 }
@@ -1,19 +1,34 @@
 package com.voltazor.myapplication;
 
+import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 import android.widget.ImageView;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.material.snackbar.Snackbar;
+import com.squareup.okhttp.OkHttpClient;
+
+import java.io.File;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Created by voltazor on 10/02/16.
  */
-public class EditPhotosActivity extends AppCompatActivity implements PhotosAdapter.PhotosControlCallback {
+public class EditPhotosActivity extends AppCompatActivity implements PhotosAdapter.PhotosControlCallback,
+        PhotoUploader.Callback {
+
+    private static final int REQUEST_PICK_PHOTO = 1;
 
     private ImageView mThumbView;
     private RecyclerView mPhotosRecyclerView;
@@ -21,8 +36,16 @@ public class EditPhotosActivity extends AppCompatActivity implements PhotosAdapt
 
     private PhotosAdapter mAdapter;
     private GridLayoutManager mLayoutManager;
+    private SqlitePictureStore mPictureStore;
+    // Reads pages of the gallery ahead of scroll
+    private final ExecutorService mPageExecutor = Executors.newSingleThreadExecutor();
+    private OrderSyncQueue mOrderSyncQueue;
+    private PhotoUploader mPhotoUploader;
+    private DeleteQueue mDeleteQueue;
+    private Snackbar mUndoSnackbar;
+    private Uri mPickedPhoto;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
 
-    private int id = 1;
     private Random mRandom = new Random();
 
     @Override
@@ -37,34 +60,198 @@ public class EditPhotosActivity extends AppCompatActivity implements PhotosAdapt
 
         mPhotosRecyclerView.setLayoutManager(mLayoutManager = new GridLayoutManager(this, 4));
         mPhotosRecyclerView.addItemDecoration(new PhotosAdapter.SpacesItemDecoration(this));
+        mPhotosRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                FrameMonitor frameMonitor = Metrics.get().getFrameMonitor();
+                if (newState == RecyclerView.SCROLL_STATE_SETTLING) {
+                    frameMonitor.begin(FrameMonitor.PHASE_FLING);
+                } else {
+                    frameMonitor.end(FrameMonitor.PHASE_FLING);
+                }
+            }
+        });
 
-        setPhotos(createPhotos(), false);
+        OkHttpClient client = new OkHttpClient();
+        mOrderSyncQueue = new OrderSyncQueue(client, BuildConfig.API_URL);
+        mPhotoUploader = new PhotoUploader(this, client, BuildConfig.API_URL, this);
+        // Opening the helper doesn't touch the disk, the database is opened by the first query
+        mPictureStore = new SqlitePictureStore(this);
+        mDeleteQueue = new DeleteQueue(client, BuildConfig.API_URL, mPictureStore);
+        mDeleteQueue.sendRemoved();
+        loadPhotos();
     }
 
-    public void setPhotos(List<UserPicture> pictures, boolean isBroAvatar) {
+    /**
+     * Opens and seeds the store and reads the first page off the UI thread, then hands them to the adapter.
+     * Uploads stopped with the previous instance of the activity are started again
+     */
+    private void loadPhotos() {
+        mPageExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mPictureStore.getCount() == 0) {
+                    mPictureStore.addAll(createPhotos());
+                }
+                final PagedPictureList pictures = new PagedPictureList(mPictureStore, mPageExecutor);
+                if (!pictures.isEmpty()) {
+                    pictures.get(0);
+                }
+                final List<UserPicture> uploads = new ArrayList<>();
+                for (UserPicture picture : mPictureStore.loadPendingUploads()) {
+                    if (new File(Uri.parse(picture.getPictureUrl()).getPath()).isFile()) {
+                        uploads.add(picture);
+                    }
+                }
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mPageExecutor.isShutdown()) {
+                            return;
+                        }
+                        setPhotos(pictures, false);
+                        for (UserPicture picture : uploads) {
+                            mAdapter.setUploading(picture, true);
+                            mPhotoUploader.retry(picture);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        mPictureStore.flush();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Removed pictures are gone locally already, the backend should not wait for undo any longer
+        mDeleteQueue.flush();
+        if (mUndoSnackbar != null) {
+            mUndoSnackbar.dismiss();
+        }
+        Metrics.get().report();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mPageExecutor.shutdownNow();
+        mOrderSyncQueue.shutdown();
+        mPhotoUploader.shutdown();
+        mDeleteQueue.shutdown();
+        // Queues may still purge or read it in background, the helper reopens the database then
+        mPictureStore.close();
+    }
+
+    public void setPhotos(PagedPictureList pictures, boolean isBroAvatar) {
         mAdapter = new PhotosAdapter(this, pictures, mLayoutManager, this, isBroAvatar);
         mAdapter.setHasStableIds(true);
-        mPhotosRecyclerView.addOnItemTouchListener(new PhotoDragController(mAdapter, mThumbView, mAnimatedView, mAdapter));
+        new PhotoDragController(mAdapter, mThumbView, mAnimatedView, mAdapter).attachToRecyclerView(mPhotosRecyclerView);
         mPhotosRecyclerView.setAdapter(mAdapter);
+        mPhotosRecyclerView.addOnScrollListener(new ThumbnailPrefetcher(this, mLayoutManager, mAdapter));
         mPhotosRecyclerView.setItemAnimator(new DummyAnimator());
+        if (mPickedPhoto != null) {
+            mPhotoUploader.upload(mPickedPhoto);
+            mPickedPhoto = null;
+        }
     }
 
     @Override
     public void onAddPhoto() {
-        if (mAdapter.getUserPicturesCount() < mAdapter.getItemCount()) {
-            mAdapter.addPhoto(createUserPhoto());
+        if (mAdapter.canAddPhoto()) {
+            Intent intent = new Intent(Intent.ACTION_GET_CONTENT).setType("image/*");
+            startActivityForResult(intent, REQUEST_PICK_PHOTO);
+        }
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == REQUEST_PICK_PHOTO && resultCode == RESULT_OK && data != null && data.getData() != null) {
+            if (mAdapter != null) {
+                mPhotoUploader.upload(data.getData());
+            } else {
+                // Activity was recreated and its gallery is still loading, the photo is added after it
+                mPickedPhoto = data.getData();
+            }
+        }
+    }
+
+    @Override
+    public void onPhotoPrepared(UserPicture picture) {
+        mAdapter.addPhoto(picture);
+        mAdapter.setUploading(picture, true);
+    }
+
+    @Override
+    public void onUploadFinished(final UserPicture picture, @Nullable String uploadUrl) {
+        mAdapter.setUploading(picture, false);
+        if (uploadUrl != null) {
+            picture.setUploadUrl(uploadUrl);
+            mPictureStore.updateUploadUrl(picture);
+            return;
         }
+        Snackbar.make(mPhotosRecyclerView, R.string.upload_failed, Snackbar.LENGTH_LONG)
+                .setAction(R.string.label_retry, new View.OnClickListener() {
+                    @Override
+                    public void onClick(View v) {
+                        mAdapter.setUploading(picture, true);
+                        mPhotoUploader.retry(picture);
+                    }
+                })
+                .show();
     }
 
     @Override
     public void onRemovePhoto(UserPicture picture) {
         mAdapter.removeUserPicture(picture);
         mPhotosRecyclerView.getItemAnimator().dispatchAnimationsFinished();
+        showUndo(mDeleteQueue.enqueue(picture));
+    }
+
+    private void showUndo(int count) {
+        String text = getResources().getQuantityString(R.plurals.photos_removed, count, count);
+        if (mUndoSnackbar != null && mUndoSnackbar.isShownOrQueued()) {
+            // Showing the current snackbar again restarts its timeout
+            mUndoSnackbar.setText(text);
+            mUndoSnackbar.show();
+            return;
+        }
+        mUndoSnackbar = Snackbar.make(mPhotosRecyclerView, text, Snackbar.LENGTH_LONG)
+                .setAction(R.string.label_undo, new View.OnClickListener() {
+                    @Override
+                    public void onClick(View v) {
+                        for (UserPicture picture : mDeleteQueue.undo()) {
+                            mAdapter.restoreUserPicture(picture);
+                            // Restored pictures get new keys
+                            mOrderSyncQueue.record(picture);
+                        }
+                        mOrderSyncQueue.commit();
+                    }
+                });
+        mUndoSnackbar.show();
+    }
+
+    @Override
+    public void onOrderChanged(UserPicture picture, int fromPosition, int toPosition) {
+        mOrderSyncQueue.record(picture);
     }
 
     @Override
-    public void onOrderChanged(List<UserPicture> pictures) {
+    public void onOrderRebalanced() {
+        // Backend has to receive every new key, otherwise its order mixes old and new keys.
+        // The whole gallery is read off the UI thread, the drag goes on meanwhile
+        mOrderSyncQueue.recordAll(mPictureStore);
+    }
 
+    @Override
+    public void onOrderCommitted() {
+        mOrderSyncQueue.commit();
     }
 
     private List<UserPicture> createPhotos() {
@@ -76,9 +263,8 @@ public class EditPhotosActivity extends AppCompatActivity implements PhotosAdapt
     }
 
     private UserPicture createUserPhoto() {
-        int index = id++;
+        // Id is assigned by the store
         UserPicture picture = new UserPicture();
-        picture.setId(index * 1000);
         switch (mRandom.nextInt(4)) {
             case 1:
                 picture.setPictureUrl("http://67.media.tumblr.com/2d6fd89aeb4403659aa7167191eae531/tumblr_o9s3mpQDUy1s37ot7o1_1280.jpg");
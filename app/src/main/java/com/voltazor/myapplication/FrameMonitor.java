@@ -0,0 +1,93 @@
+package com.voltazor.myapplication;
+
+import android.view.Choreographer;
+
+/**
+ * Records frame intervals while a gallery interaction is running, separately per interaction phase.
+ * Frames are observed through {@link Choreographer} callbacks, which are posted only while
+ * at least one phase is active, so an idle screen costs nothing.
+ * <p>
+ * Must be used from the main thread.
+ */
+public class FrameMonitor implements Choreographer.FrameCallback {
+
+    public static final int PHASE_DRAG = 0;
+    public static final int PHASE_FLING = 1;
+    public static final int PHASE_REORDER = 2;
+    static final int PHASE_COUNT = 3;
+
+    static final String[] PHASE_NAMES = {"drag", "fling", "reorder"};
+
+    // A frame is janky when it took longer than one and a half refresh intervals
+    private static final float JANK_FACTOR = 1.5f;
+
+    private final long mJankThresholdNanos;
+    private final Histogram[] mFrameTimes = new Histogram[PHASE_COUNT];
+    private final long[] mJankCounts = new long[PHASE_COUNT];
+
+    private int mActivePhases;
+    private long mLastFrameTimeNanos;
+    private boolean isFrameScheduled;
+
+    public FrameMonitor(float refreshRate) {
+        mJankThresholdNanos = (long) (JANK_FACTOR * 1e9 / refreshRate);
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            mFrameTimes[i] = new Histogram();
+        }
+    }
+
+    public void begin(int phase) {
+        mActivePhases |= 1 << phase;
+        if (!isFrameScheduled) {
+            isFrameScheduled = true;
+            mLastFrameTimeNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    public void end(int phase) {
+        mActivePhases &= ~(1 << phase);
+    }
+
+    public boolean isActive(int phase) {
+        return (mActivePhases & (1 << phase)) != 0;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mLastFrameTimeNanos != 0) {
+            long frameNanos = frameTimeNanos - mLastFrameTimeNanos;
+            boolean isJank = frameNanos > mJankThresholdNanos;
+            for (int phase = 0; phase < PHASE_COUNT; phase++) {
+                if (isActive(phase)) {
+                    mFrameTimes[phase].record(frameNanos);
+                    if (isJank) {
+                        mJankCounts[phase]++;
+                    }
+                }
+            }
+        }
+        if (mActivePhases != 0) {
+            mLastFrameTimeNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        } else {
+            isFrameScheduled = false;
+        }
+    }
+
+    public Histogram getFrameTimes(int phase) {
+        return mFrameTimes[phase];
+    }
+
+    public long getJankCount(int phase) {
+        return mJankCounts[phase];
+    }
+
+    void reset() {
+        for (int phase = 0; phase < PHASE_COUNT; phase++) {
+            mFrameTimes[phase].reset();
+            mJankCounts[phase] = 0;
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.voltazor.myapplication;
+
+/**
+ * Log-linear histogram of non negative long values, e.g. durations in nanoseconds.
+ * Every power of two range is split into {@link #SUB_BUCKETS} equal buckets, so a value
+ * is reported with an error of 25% at most. Recording doesn't allocate and is cheap enough
+ * to stay on in release builds.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] mCounts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long mCount;
+    private long mSum;
+    private long mMax;
+
+    public synchronized void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        mCounts[bucketOf(value)]++;
+        mCount++;
+        mSum += value;
+        mMax = Math.max(mMax, value);
+    }
+
+    public synchronized long getCount() {
+        return mCount;
+    }
+
+    public synchronized long getMax() {
+        return mMax;
+    }
+
+    public synchronized double getMean() {
+        return mCount == 0 ? 0 : (double) mSum / mCount;
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     * @return upper bound of the bucket holding the value at the given percentile, never above the max value
+     */
+    public synchronized long getValueAtPercentile(double percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(mCount * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < mCounts.length; bucket++) {
+            seen += mCounts[bucket];
+            if (seen >= rank) {
+                return Math.min(mMax, upperBoundOf(bucket));
+            }
+        }
+        return mMax;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < mCounts.length; i++) {
+            mCounts[i] = 0;
+        }
+        mCount = mSum = mMax = 0;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> exponent) & (SUB_BUCKETS - 1);
+        return (exponent + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long lowerBound = (SUB_BUCKETS + subBucket) << exponent;
+        return lowerBound + (1L << exponent) - 1;
+    }
+
+}
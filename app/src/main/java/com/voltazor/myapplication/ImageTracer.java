@@ -0,0 +1,211 @@
+package com.voltazor.myapplication;
+
+import android.net.Uri;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.core.os.TraceCompat;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Per-stage timings of thumbnail loads, from the bind which requested a thumbnail to the moment it's shown.
+ * <p>
+ * Worker stages are emitted as {@link TraceCompat} sections, so they show up in systrace.
+ * Every stage is also recorded into a {@link Metrics} histogram per span size,
+ * e.g. {@code image.decode.span1}, and loads slower than {@link #SLOW_LOAD_NANOS}
+ * are logged with the adapter position they were requested for.
+ * <p>
+ * Loads are keyed by thumbnail uri, Picasso merges requests of the same uri into one load anyway.
+ * Records are updated from Picasso workers and the main thread, every access holds the record's lock.
+ */
+class ImageTracer {
+
+    static final int STAGE_QUEUE = 0;
+    static final int STAGE_FETCH = 1;
+    static final int STAGE_DISK_READ = 2;
+    static final int STAGE_DECODE = 3;
+    static final int STAGE_TRANSFORM = 4;
+    static final int STAGE_DISK_WRITE = 5;
+    static final int STAGE_DISPLAY = 6;
+    static final int STAGE_COUNT = 7;
+
+    private static final String[] STAGE_NAMES = {"queue", "fetch", "disk", "decode", "transform", "disk_write",
+            "display"};
+    private static final String[] SECTION_NAMES = {"thumb:queue", "thumb:fetch", "thumb:disk", "thumb:decode",
+            "thumb:transform", "thumb:disk_write", "thumb:display"};
+
+    private static final long SLOW_LOAD_NANOS = 300 * 1000000L;
+    // Loads of recycled tiles are never displayed, the least recently touched record is dropped once there are too many
+    private static final int MAX_RECORDS = 128;
+
+    // Access ordered, guarded by itself
+    private final Map<String, Record> mRecords = new LinkedHashMap<String, Record>(16, .75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Record> eldest) {
+            return size() > MAX_RECORDS;
+        }
+    };
+    private final SparseArray<Histogram[]> mHistograms = new SparseArray<>();
+
+    /**
+     * Starts tracing a thumbnail requested from the bind of the given position, main thread only
+     */
+    void begin(@NonNull Uri uri, int position, int spanSize) {
+        String key = uri.toString();
+        Record record;
+        synchronized (mRecords) {
+            record = mRecords.get(key);
+            if (record == null) {
+                record = new Record();
+                mRecords.put(key, record);
+            }
+        }
+        synchronized (record) {
+            record.position = position;
+            record.spanSize = spanSize;
+            record.markNanos = System.nanoTime();
+            for (int i = 0; i < STAGE_COUNT; i++) {
+                record.stageNanos[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Called by the loader when it picks the request up, closes the queue stage
+     */
+    void onLoadStarted(@NonNull Uri uri) {
+        Record record = getRecord(uri);
+        if (record != null) {
+            synchronized (record) {
+                long now = System.nanoTime();
+                record.stageNanos[STAGE_QUEUE] = now - record.markNanos;
+                record.markNanos = now;
+            }
+        }
+    }
+
+    /**
+     * @return start time to pass to {@link #endStage(Uri, int, long)}
+     */
+    static long beginStage(int stage) {
+        TraceCompat.beginSection(SECTION_NAMES[stage]);
+        return System.nanoTime();
+    }
+
+    void endStage(@NonNull Uri uri, int stage, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        TraceCompat.endSection();
+        addStage(uri, stage, nanos);
+    }
+
+    /**
+     * Ends a stage with a nested one measured by someone else, e.g. transform done by the decoder strip by strip.
+     * Nested time is taken out of the stage, so stages add up to the whole load
+     */
+    void endStage(@NonNull Uri uri, int stage, long startNanos, int nestedStage, long nestedNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        TraceCompat.endSection();
+        addStage(uri, stage, Math.max(0, nanos - nestedNanos));
+        addStage(uri, nestedStage, nestedNanos);
+    }
+
+    /**
+     * Adds time of a stage measured by someone else
+     */
+    void addStage(@NonNull Uri uri, int stage, long nanos) {
+        Record record = getRecord(uri);
+        if (record != null) {
+            synchronized (record) {
+                record.stageNanos[stage] += nanos;
+            }
+        }
+    }
+
+    /**
+     * Called by the loader when the bitmap is ready, display stage starts here
+     */
+    void onLoadFinished(@NonNull Uri uri) {
+        Record record = getRecord(uri);
+        if (record != null) {
+            synchronized (record) {
+                record.markNanos = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Called when the thumbnail is set to its tile, finishes the trace, main thread only
+     */
+    void onDisplayed(@NonNull Uri uri) {
+        Record record;
+        synchronized (mRecords) {
+            record = mRecords.remove(uri.toString());
+        }
+        if (record == null) {
+            return;
+        }
+        synchronized (record) {
+            report(record);
+        }
+    }
+
+    private void report(Record record) {
+        record.stageNanos[STAGE_DISPLAY] = System.nanoTime() - record.markNanos;
+        Histogram[] histograms = getHistograms(record.spanSize);
+        long totalNanos = 0;
+        for (int stage = 0; stage < STAGE_COUNT; stage++) {
+            long nanos = record.stageNanos[stage];
+            totalNanos += nanos;
+            if (nanos > 0 || stage == STAGE_QUEUE || stage == STAGE_DISPLAY) {
+                histograms[stage].record(nanos);
+            }
+        }
+        if (totalNanos > SLOW_LOAD_NANOS) {
+            Timber.d("Slow thumbnail at %d, span %d: %d ms, queue %d, fetch %d, disk %d, decode %d, transform %d,"
+                            + " disk write %d, display %d",
+                    record.position, record.spanSize, totalNanos / 1000000,
+                    record.stageNanos[STAGE_QUEUE] / 1000000, record.stageNanos[STAGE_FETCH] / 1000000,
+                    record.stageNanos[STAGE_DISK_READ] / 1000000, record.stageNanos[STAGE_DECODE] / 1000000,
+                    record.stageNanos[STAGE_TRANSFORM] / 1000000, record.stageNanos[STAGE_DISK_WRITE] / 1000000,
+                    record.stageNanos[STAGE_DISPLAY] / 1000000);
+        }
+    }
+
+    void cancel(@NonNull Uri uri) {
+        synchronized (mRecords) {
+            mRecords.remove(uri.toString());
+        }
+    }
+
+    private Record getRecord(Uri uri) {
+        synchronized (mRecords) {
+            return mRecords.get(uri.toString());
+        }
+    }
+
+    private Histogram[] getHistograms(int spanSize) {
+        Histogram[] histograms = mHistograms.get(spanSize);
+        if (histograms == null) {
+            histograms = new Histogram[STAGE_COUNT];
+            for (int stage = 0; stage < STAGE_COUNT; stage++) {
+                histograms[stage] = Metrics.get().getHistogram("image." + STAGE_NAMES[stage] + ".span" + spanSize);
+            }
+            mHistograms.put(spanSize, histograms);
+        }
+        return histograms;
+    }
+
+    private static class Record {
+
+        int position;
+        int spanSize;
+        long markNanos;
+        final long[] stageNanos = new long[STAGE_COUNT];
+
+    }
+
+}
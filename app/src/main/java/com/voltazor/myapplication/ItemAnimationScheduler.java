@@ -0,0 +1,279 @@
+package com.voltazor.myapplication;
+
+/**
+ * Runs item animations of a list from a single per-frame {@link #tick(long)}.
+ * <p>
+ * Every animation is a record of translation and alpha interpolated from start to end values.
+ * Records are kept in parallel arrays, a finished record is replaced by the last one,
+ * so slots are reused and neither scheduling nor ticking allocates once arrays have grown.
+ * Scheduled animations stay pending until {@link #startPending(long[])}, their start time is
+ * anchored at the first tick after that, so the first frame shows start values.
+ * <p>
+ * Doesn't depend on the Android framework, values are applied through {@link Renderer}.
+ */
+class ItemAnimationScheduler<T> {
+
+    static final int TYPE_REMOVE = 0;
+    static final int TYPE_MOVE = 1;
+    static final int TYPE_CHANGE_OLD = 2;
+    static final int TYPE_CHANGE_NEW = 3;
+    static final int TYPE_ADD = 4;
+    static final int TYPE_COUNT = 5;
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_SCHEDULED = 1;
+    private static final int STATE_DELAYED = 2;
+    private static final int STATE_RUNNING = 3;
+
+    private final Renderer<T> mRenderer;
+
+    private int mCount;
+    private Object[] mItems = new Object[16];
+    private int[] mTypes = new int[16];
+    private int[] mStates = new int[16];
+    private long[] mDelays = new long[16];
+    private long[] mStarts = new long[16];
+    private long[] mDurations = new long[16];
+    private float[] mFromX = new float[16];
+    private float[] mFromY = new float[16];
+    private float[] mFromAlpha = new float[16];
+    private float[] mToX = new float[16];
+    private float[] mToY = new float[16];
+    private float[] mToAlpha = new float[16];
+
+    private final int[] mPendingCounts = new int[TYPE_COUNT];
+
+    ItemAnimationScheduler(Renderer<T> renderer) {
+        mRenderer = renderer;
+    }
+
+    /**
+     * Adds a pending animation of the item, start values are applied right away
+     */
+    void schedule(T item, int type, long durationNanos, float fromX, float fromY, float fromAlpha,
+                  float toX, float toY, float toAlpha) {
+        ensureCapacity(mCount + 1);
+        int i = mCount++;
+        mItems[i] = item;
+        mTypes[i] = type;
+        mStates[i] = STATE_PENDING;
+        mDurations[i] = durationNanos;
+        mFromX[i] = fromX;
+        mFromY[i] = fromY;
+        mFromAlpha[i] = fromAlpha;
+        mToX[i] = toX;
+        mToY[i] = toY;
+        mToAlpha[i] = toAlpha;
+        mPendingCounts[type]++;
+        mRenderer.onUpdate(item, fromX, fromY, fromAlpha);
+    }
+
+    int getPendingCount(int type) {
+        return mPendingCounts[type];
+    }
+
+    boolean hasPending() {
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            if (mPendingCounts[type] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Schedules all pending animations to start after the delay of their type
+     *
+     * @param delaysNanos delay per animation type
+     */
+    void startPending(long[] delaysNanos) {
+        for (int i = 0; i < mCount; i++) {
+            if (mStates[i] == STATE_PENDING) {
+                mStates[i] = STATE_SCHEDULED;
+                mDelays[i] = delaysNanos[mTypes[i]];
+            }
+        }
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            mPendingCounts[type] = 0;
+        }
+    }
+
+    /**
+     * Advances every scheduled animation to the given frame time, finished ones are removed
+     *
+     * @return true if there are animations left to tick
+     */
+    boolean tick(long frameTimeNanos) {
+        for (int i = mCount - 1; i >= 0; i--) {
+            if (i >= mCount) {
+                // Records were ended by a callback
+                continue;
+            }
+            int state = mStates[i];
+            if (state == STATE_PENDING) {
+                continue;
+            }
+            if (state == STATE_SCHEDULED) {
+                mStarts[i] = frameTimeNanos + mDelays[i];
+                mStates[i] = state = STATE_DELAYED;
+            }
+            long elapsed = frameTimeNanos - mStarts[i];
+            if (elapsed < 0) {
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            T item = (T) mItems[i];
+            if (state == STATE_DELAYED) {
+                mStates[i] = STATE_RUNNING;
+                mRenderer.onStarted(item, mTypes[i]);
+                if (i >= mCount || mItems[i] != item) {
+                    continue;
+                }
+            }
+            if (elapsed >= mDurations[i]) {
+                finish(i);
+            } else {
+                float fraction = interpolate((float) elapsed / mDurations[i]);
+                mRenderer.onUpdate(item, lerp(mFromX[i], mToX[i], fraction), lerp(mFromY[i], mToY[i], fraction),
+                        lerp(mFromAlpha[i], mToAlpha[i], fraction));
+            }
+        }
+        return isTicking();
+    }
+
+    /**
+     * @return true if some animations are started and wait for ticks
+     */
+    boolean isTicking() {
+        for (int i = 0; i < mCount; i++) {
+            if (mStates[i] != STATE_PENDING) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isRunning() {
+        return mCount > 0;
+    }
+
+    /**
+     * Jumps every animation of the item to its end
+     *
+     * @return true if the item had animations
+     */
+    boolean end(T item) {
+        boolean isEnded = false;
+        for (int i = mCount - 1; i >= 0; i--) {
+            if (i < mCount && mItems[i] == item) {
+                finish(i);
+                isEnded = true;
+            }
+        }
+        return isEnded;
+    }
+
+    void endAll() {
+        while (mCount > 0) {
+            finish(mCount - 1);
+        }
+    }
+
+    private void finish(int i) {
+        @SuppressWarnings("unchecked")
+        T item = (T) mItems[i];
+        int type = mTypes[i];
+        if (mStates[i] == STATE_PENDING) {
+            mPendingCounts[type]--;
+        }
+        mRenderer.onUpdate(item, mToX[i], mToY[i], mToAlpha[i]);
+        removeAt(i);
+        mRenderer.onFinished(item, type);
+    }
+
+    private void removeAt(int i) {
+        int last = --mCount;
+        if (i != last) {
+            mItems[i] = mItems[last];
+            mTypes[i] = mTypes[last];
+            mStates[i] = mStates[last];
+            mDelays[i] = mDelays[last];
+            mStarts[i] = mStarts[last];
+            mDurations[i] = mDurations[last];
+            mFromX[i] = mFromX[last];
+            mFromY[i] = mFromY[last];
+            mFromAlpha[i] = mFromAlpha[last];
+            mToX[i] = mToX[last];
+            mToY[i] = mToY[last];
+            mToAlpha[i] = mToAlpha[last];
+        }
+        mItems[last] = null;
+    }
+
+    /**
+     * Same curve as the default interpolator of view property animations
+     */
+    static float interpolate(float fraction) {
+        return (float) (Math.cos((fraction + 1) * Math.PI) / 2) + .5f;
+    }
+
+    private static float lerp(float from, float to, float fraction) {
+        return from + (to - from) * fraction;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= mItems.length) {
+            return;
+        }
+        int size = Math.max(capacity, mItems.length * 2);
+        Object[] items = new Object[size];
+        System.arraycopy(mItems, 0, items, 0, mCount);
+        mItems = items;
+        mTypes = grow(mTypes, size);
+        mStates = grow(mStates, size);
+        mDelays = grow(mDelays, size);
+        mStarts = grow(mStarts, size);
+        mDurations = grow(mDurations, size);
+        mFromX = grow(mFromX, size);
+        mFromY = grow(mFromY, size);
+        mFromAlpha = grow(mFromAlpha, size);
+        mToX = grow(mToX, size);
+        mToY = grow(mToY, size);
+        mToAlpha = grow(mToAlpha, size);
+    }
+
+    private static int[] grow(int[] array, int size) {
+        int[] result = new int[size];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    private static long[] grow(long[] array, int size) {
+        long[] result = new long[size];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    private static float[] grow(float[] array, int size) {
+        float[] result = new float[size];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    /**
+     * Applies animated values to items and reports their animation lifecycle
+     */
+    interface Renderer<T> {
+
+        void onStarted(T item, int type);
+
+        void onUpdate(T item, float translationX, float translationY, float alpha);
+
+        /**
+         * Called after the record is removed, so the item may be animated again from here
+         */
+        void onFinished(T item, int type);
+
+    }
+
+}
@@ -0,0 +1,172 @@
+package com.voltazor.myapplication;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link PictureStore} kept in memory, for galleries which don't need persistence.
+ * Thread safe like {@link SqlitePictureStore}, so pages may be loaded on a background executor.
+ */
+public class ListPictureStore implements PictureStore {
+
+    private final List<UserPicture> mPictures;
+    // Positions in mPictures by id, shifted together with the list
+    private final Map<Long, Integer> mPositions = new HashMap<>();
+    // Removed pictures by id, their keys follow rebalancing so they keep their place
+    private final Map<Long, UserPicture> mRemoved = new LinkedHashMap<>();
+
+    public ListPictureStore(List<UserPicture> pictures) {
+        mPictures = new ArrayList<>(pictures.size());
+        for (UserPicture picture : pictures) {
+            add(picture);
+        }
+    }
+
+    @Override
+    public synchronized int getCount() {
+        return mPictures.size();
+    }
+
+    @Override
+    public synchronized List<UserPicture> load(int offset, int limit) {
+        return copy(offset, offset + limit);
+    }
+
+    @Override
+    public synchronized List<UserPicture> loadAfter(long afterKey, int limit) {
+        int start = afterKey == OrderKeys.NO_KEY ? 0 : lowerBound(afterKey + 1);
+        return copy(start, start + limit);
+    }
+
+    @Override
+    public synchronized List<UserPicture> loadBefore(long beforeKey, int limit) {
+        int end = lowerBound(beforeKey);
+        return copy(Math.max(0, end - limit), end);
+    }
+
+    @Override
+    public synchronized int indexOf(long id) {
+        Integer position = mPositions.get(id);
+        return position != null ? position : -1;
+    }
+
+    @Override
+    public synchronized void add(UserPicture picture) {
+        long last = mPictures.isEmpty() ? OrderKeys.NO_KEY : mPictures.get(mPictures.size() - 1).getOrder();
+        picture.setOrder(OrderKeys.between(last, OrderKeys.NO_KEY));
+        mPositions.put(picture.getId(), mPictures.size());
+        mPictures.add(picture);
+    }
+
+    @Override
+    public synchronized void remove(UserPicture picture) {
+        int position = indexOf(picture.getId());
+        if (position >= 0) {
+            UserPicture removed = mPictures.remove(position);
+            mPositions.remove(removed.getId());
+            updatePositions(position);
+            mRemoved.put(removed.getId(), removed);
+        }
+    }
+
+    @Override
+    public synchronized int indexOfRemoved(long id) {
+        UserPicture removed = mRemoved.get(id);
+        return removed != null ? lowerBound(removed.getOrder() + 1) : -1;
+    }
+
+    @Override
+    public synchronized void restore(UserPicture picture) {
+        UserPicture removed = mRemoved.remove(picture.getId());
+        if (removed != null) {
+            removed.setOrder(picture.getOrder());
+            int position = lowerBound(removed.getOrder());
+            mPictures.add(position, removed);
+            updatePositions(position);
+        }
+    }
+
+    @Override
+    public synchronized List<UserPicture> loadRemoved() {
+        return new ArrayList<>(mRemoved.values());
+    }
+
+    @Override
+    public synchronized void purge(List<UserPicture> pictures) {
+        for (UserPicture picture : pictures) {
+            mRemoved.remove(picture.getId());
+        }
+    }
+
+    @Override
+    public synchronized void updateOrder(UserPicture picture) {
+        int from = indexOf(picture.getId());
+        UserPicture stored = mPictures.remove(from);
+        stored.setOrder(picture.getOrder());
+        int to = lowerBound(stored.getOrder());
+        mPictures.add(to, stored);
+        updatePositions(Math.min(from, to));
+    }
+
+    @Override
+    public synchronized void updateUploadUrl(UserPicture picture) {
+        int position = indexOf(picture.getId());
+        if (position >= 0) {
+            mPictures.get(position).setUploadUrl(picture.getUploadUrl());
+        }
+    }
+
+    /**
+     * Removed pictures get keys halfway between the new keys of the pictures around their place
+     */
+    @Override
+    public synchronized void rebalance() {
+        int[] places = new int[mRemoved.size()];
+        int i = 0;
+        for (UserPicture removed : mRemoved.values()) {
+            places[i++] = lowerBound(removed.getOrder() + 1);
+        }
+        for (i = 0; i < mPictures.size(); i++) {
+            mPictures.get(i).setOrder(OrderKeys.keyAt(i));
+        }
+        i = 0;
+        for (UserPicture removed : mRemoved.values()) {
+            removed.setOrder(OrderKeys.keyAt(places[i++]) - OrderKeys.GAP / 2);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+    }
+
+    private void updatePositions(int start) {
+        for (int i = start; i < mPictures.size(); i++) {
+            mPositions.put(mPictures.get(i).getId(), i);
+        }
+    }
+
+    private List<UserPicture> copy(int start, int end) {
+        end = Math.min(mPictures.size(), end);
+        return new ArrayList<>(mPictures.subList(Math.min(start, end), end));
+    }
+
+    /**
+     * @return position of the first picture with a key not less than the given one
+     */
+    private int lowerBound(long key) {
+        int low = 0, high = mPictures.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (mPictures.get(middle).getOrder() < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
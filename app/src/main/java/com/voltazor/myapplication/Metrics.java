@@ -0,0 +1,187 @@
+package com.voltazor.myapplication;
+
+import android.content.Context;
+import android.view.WindowManager;
+
+import androidx.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import timber.log.Timber;
+
+/**
+ * In-process performance metrics of the gallery: frame times per interaction phase,
+ * bind counts, thumbnail cache hit rate and latency histograms.
+ * <p>
+ * Recording only bumps counters and histogram buckets, nothing leaves the process until
+ * {@link #report()} hands a snapshot to the installed {@link Sink} and starts a new period.
+ * Counters are updated from the main thread, histograms may be recorded from any thread.
+ */
+public class Metrics {
+
+    public static final String HISTOGRAM_IMAGE_LOAD = "image.load";
+    public static final String HISTOGRAM_DRAG_INPUT_TO_FRAME = "drag.input_to_frame";
+    // Same as above with the drag thumb drawn without a hardware layer
+    public static final String HISTOGRAM_DRAG_INPUT_TO_FRAME_NO_LAYER = "drag.input_to_frame.no_layer";
+
+    private static volatile Metrics sInstance;
+
+    private final FrameMonitor mFrameMonitor;
+    private final Map<String, Histogram> mHistograms = new LinkedHashMap<>();
+    private final List<Source> mSources = new CopyOnWriteArrayList<>();
+    private volatile Sink mSink = new LogSink();
+
+    private long mBindCount;
+    private long mCacheHitCount;
+    private long mCacheMissCount;
+
+    private Metrics(Context context) {
+        WindowManager wm = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        mFrameMonitor = new FrameMonitor(wm.getDefaultDisplay().getRefreshRate());
+    }
+
+    /**
+     * Should be called once from {@link App#onCreate()}
+     */
+    public static void init(@NonNull Context context) {
+        sInstance = new Metrics(context.getApplicationContext());
+    }
+
+    public static Metrics get() {
+        if (sInstance == null) {
+            throw new IllegalStateException("Metrics is not initialized");
+        }
+        return sInstance;
+    }
+
+    public void setSink(@NonNull Sink sink) {
+        mSink = sink;
+    }
+
+    /**
+     * Adds metrics kept by someone else to every following report
+     */
+    public void addSource(@NonNull Source source) {
+        mSources.add(source);
+    }
+
+    public FrameMonitor getFrameMonitor() {
+        return mFrameMonitor;
+    }
+
+    /**
+     * Records a full bind of a tile and whether its thumbnail was resident in memory
+     */
+    public void recordBind(boolean isCacheHit) {
+        mBindCount++;
+        if (isCacheHit) {
+            mCacheHitCount++;
+        } else {
+            mCacheMissCount++;
+        }
+    }
+
+    public void recordImageLoad(long nanos) {
+        getHistogram(HISTOGRAM_IMAGE_LOAD).record(nanos);
+    }
+
+    /**
+     * @return histogram of the given name, it's created on first use and lives as long as the process
+     */
+    public Histogram getHistogram(@NonNull String name) {
+        synchronized (mHistograms) {
+            Histogram histogram = mHistograms.get(name);
+            if (histogram == null) {
+                histogram = new Histogram();
+                mHistograms.put(name, histogram);
+            }
+            return histogram;
+        }
+    }
+
+    public float getCacheHitRate() {
+        long total = mCacheHitCount + mCacheMissCount;
+        return total == 0 ? 0 : (float) mCacheHitCount / total;
+    }
+
+    /**
+     * Hands everything recorded since the previous report to the sink and resets it
+     */
+    public void report() {
+        Sink sink = mSink;
+        for (int phase = 0; phase < FrameMonitor.PHASE_COUNT; phase++) {
+            String name = FrameMonitor.PHASE_NAMES[phase];
+            sink.onHistogram("frame." + name, mFrameMonitor.getFrameTimes(phase));
+            sink.onCounter("jank." + name, mFrameMonitor.getJankCount(phase));
+        }
+        mFrameMonitor.reset();
+
+        sink.onCounter("bind", mBindCount);
+        sink.onCounter("bind.cache_hit", mCacheHitCount);
+        sink.onCounter("bind.cache_miss", mCacheMissCount);
+        mBindCount = mCacheHitCount = mCacheMissCount = 0;
+
+        for (Source source : mSources) {
+            source.report(sink);
+        }
+
+        synchronized (mHistograms) {
+            for (Map.Entry<String, Histogram> entry : mHistograms.entrySet()) {
+                sink.onHistogram(entry.getKey(), entry.getValue());
+                entry.getValue().reset();
+            }
+        }
+    }
+
+    /**
+     * Receives reported metrics, histogram values are in nanoseconds.
+     * Histograms are reset right after the call, so they must not be kept
+     */
+    public interface Sink {
+
+        void onCounter(String name, long value);
+
+        void onHistogram(String name, Histogram histogram);
+
+    }
+
+    /**
+     * Keeps its own metrics, e.g. counters updated from worker threads, and hands them over on {@link #report()}
+     */
+    public interface Source {
+
+        /**
+         * Passes metrics of the period to the sink and starts a new period
+         */
+        void report(Sink sink);
+
+    }
+
+    /**
+     * Writes metrics to the log, it's silent in builds without a planted {@link Timber} tree
+     */
+    public static class LogSink implements Sink {
+
+        @Override
+        public void onCounter(String name, long value) {
+            if (value != 0) {
+                Timber.d("%s: %d", name, value);
+            }
+        }
+
+        @Override
+        public void onHistogram(String name, Histogram histogram) {
+            if (histogram.getCount() != 0) {
+                Timber.d("%s: count %d, mean %.1f ms, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms",
+                        name, histogram.getCount(), histogram.getMean() / 1e6,
+                        histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(90) / 1e6,
+                        histogram.getValueAtPercentile(99) / 1e6, histogram.getMax() / 1e6);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.voltazor.myapplication;
+
+/**
+ * Sparse order keys of user pictures. Keys are spaced by {@link #GAP}, so a moved picture
+ * gets a key between its new neighbours and no other picture is rewritten. Only when
+ * repeated moves to the same place exhaust the gap all keys are {@link #keyAt(int) reassigned}.
+ */
+final class OrderKeys {
+
+    static final long GAP = 1L << 20;
+
+    /**
+     * No neighbour on that side, or no free key between neighbours
+     */
+    static final long NO_KEY = Long.MIN_VALUE;
+
+    private OrderKeys() {
+    }
+
+    /**
+     * @return evenly spaced key of the given position, used for initial and rebalanced keys
+     */
+    static long keyAt(int position) {
+        return (position + 1) * GAP;
+    }
+
+    /**
+     * @param previous key of the picture before, or {@link #NO_KEY} at the start
+     * @param next     key of the picture after, or {@link #NO_KEY} at the end
+     * @return key strictly between neighbours or {@link #NO_KEY} when keys have to be rebalanced
+     */
+    static long between(long previous, long next) {
+        if (previous == NO_KEY && next == NO_KEY) {
+            return keyAt(0);
+        }
+        if (previous == NO_KEY) {
+            return next - GAP;
+        }
+        if (next == NO_KEY) {
+            return previous + GAP;
+        }
+        if (next - previous < 2) {
+            return NO_KEY;
+        }
+        return previous + (next - previous) / 2;
+    }
+
+}
@@ -0,0 +1,201 @@
+package com.voltazor.myapplication;
+
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.Response;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * Syncs picture order with the backend. Order changes of a drag gesture are coalesced by picture,
+ * only the last key of every moved picture is kept, and sent as one batch once the gesture is
+ * {@link #commit() committed}. A batch carries absolute order keys and an idempotency key,
+ * so a retried batch is applied once.
+ */
+public class OrderSyncQueue {
+
+    static final String PATH = "pictures/order";
+    static final String HEADER_IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final int MAX_ATTEMPTS = 3;
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final long RETRY_DELAY_MS = 2000;
+    private static final int RECORD_ALL_PAGE_SIZE = 200;
+
+    private final OkHttpClient mClient;
+    private final String mUrl;
+    private final ScheduledExecutorService mExecutor;
+    private final long mRetryDelayMs;
+
+    private final Map<Long, Long> mPending = new LinkedHashMap<>();
+
+    public OrderSyncQueue(OkHttpClient client, String baseUrl) {
+        this(client, baseUrl, Executors.newSingleThreadScheduledExecutor(), RETRY_DELAY_MS);
+    }
+
+    /**
+     * @param executor single threaded, so batches are sent in commit order
+     */
+    OrderSyncQueue(OkHttpClient client, String baseUrl, ScheduledExecutorService executor, long retryDelayMs) {
+        mClient = client;
+        mUrl = baseUrl + PATH;
+        mExecutor = executor;
+        mRetryDelayMs = retryDelayMs;
+    }
+
+    /**
+     * Records the current key of a moved picture, replacing keys recorded before
+     */
+    public synchronized void record(UserPicture picture) {
+        mPending.remove(picture.getId());
+        mPending.put(picture.getId(), picture.getOrder());
+    }
+
+    /**
+     * Records keys of every picture of the store in background, e.g. once all keys were rebalanced.
+     * Store is read in key order page by page, a following {@link #commit()} includes all of them
+     */
+    public void recordAll(final PictureStore store) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                long key = OrderKeys.NO_KEY;
+                List<UserPicture> pictures;
+                do {
+                    pictures = store.loadAfter(key, RECORD_ALL_PAGE_SIZE);
+                    for (UserPicture picture : pictures) {
+                        record(picture);
+                    }
+                    if (!pictures.isEmpty()) {
+                        key = pictures.get(pictures.size() - 1).getOrder();
+                    }
+                } while (pictures.size() == RECORD_ALL_PAGE_SIZE);
+            }
+        });
+    }
+
+    /**
+     * Sends recorded keys as one batch in background, after keys recorded in background before the call
+     */
+    public void commit() {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                sendPending();
+            }
+        });
+    }
+
+    private void sendPending() {
+        Map<Long, Long> orders;
+        synchronized (this) {
+            if (mPending.isEmpty()) {
+                return;
+            }
+            orders = new LinkedHashMap<>(mPending);
+            mPending.clear();
+        }
+        // Sent right here on the executor thread, so a shutdown right after the commit doesn't drop it
+        execute(new Batch(UUID.randomUUID().toString(), orders), 1);
+    }
+
+    /**
+     * Stops accepting batches, already committed ones are still sent
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    private void retry(final Batch batch, final int attempt) {
+        try {
+            mExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    execute(batch, attempt);
+                }
+            }, mRetryDelayMs * (attempt - 1), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shut down after the check in execute
+            requeue(batch);
+        }
+    }
+
+    private void execute(Batch batch, int attempt) {
+        Request request = new Request.Builder()
+                .url(mUrl)
+                .header(HEADER_IDEMPOTENCY_KEY, batch.id)
+                .put(RequestBody.create(JSON, batch.toJson()))
+                .build();
+        try {
+            Response response = mClient.newCall(request).execute();
+            response.body().close();
+            if (response.isSuccessful()) {
+                return;
+            }
+            if (response.code() < 500 && response.code() != 408 && response.code() != 429) {
+                Timber.w("Order batch %s rejected with %d", batch.id, response.code());
+                return;
+            }
+            Timber.w("Order batch %s failed with %d, attempt %d", batch.id, response.code(), attempt);
+        } catch (IOException e) {
+            Timber.w(e, "Order batch %s failed, attempt %d", batch.id, attempt);
+        }
+        if (attempt < MAX_ATTEMPTS && !mExecutor.isShutdown()) {
+            retry(batch, attempt + 1);
+        } else {
+            requeue(batch);
+        }
+    }
+
+    /**
+     * Gives up the batch, its keys go with the next commit unless newer ones were recorded
+     */
+    private synchronized void requeue(Batch batch) {
+        for (Map.Entry<Long, Long> entry : batch.orders.entrySet()) {
+            if (!mPending.containsKey(entry.getKey())) {
+                mPending.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static class Batch {
+
+        private final String id;
+        private final Map<Long, Long> orders;
+
+        private Batch(String id, Map<Long, Long> orders) {
+            this.id = id;
+            this.orders = orders;
+        }
+
+        /**
+         * {"orders":[{"id":1,"order":1048576},...]}
+         */
+        private String toJson() {
+            StringBuilder json = new StringBuilder("{\"orders\":[");
+            boolean isFirst = true;
+            for (Map.Entry<Long, Long> entry : orders.entrySet()) {
+                if (!isFirst) {
+                    json.append(',');
+                }
+                json.append("{\"id\":").append(entry.getKey()).append(",\"order\":").append(entry.getValue()).append('}');
+                isFirst = false;
+            }
+            return json.append("]}").toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,413 @@
+package com.voltazor.myapplication;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Positional view of a {@link PictureStore} which keeps only a few pages of pictures resident.
+ * Pages are loaded from the local store on first access; when the page budget is exceeded
+ * the page farthest from the accessed one is evicted, so pages around the viewport
+ * and the prefetch window stay resident while scrolling.
+ * <p>
+ * Mutations are written through to the store. A move only changes the {@link OrderKeys order key}
+ * of the moved picture. Resident pages are updated in place when possible and dropped otherwise,
+ * so they are reloaded in the new order on next access. Resident pictures are indexed by id,
+ * so the position of a shown picture is found without scanning.
+ * <p>
+ * A page next to a resident one is read by the key of its neighbour, which is a range query
+ * starting at that key rather than a walk over all pictures before the page. With a load executor
+ * the page ahead of the one being read is loaded in the background, so scrolling rarely reads
+ * the store on the calling thread. A background page is used only if the list wasn't changed meanwhile.
+ * Apart from background reads of the store, the list is used from a single thread.
+ */
+public class PagedPictureList {
+
+    static final int PAGE_SIZE = 60;
+    static final int MAX_PAGES = 5;
+    // Pictures left to the edge of a page when the page beyond it is loaded in the background
+    static final int PREFETCH_DISTANCE = PAGE_SIZE / 3;
+
+    private final PictureStore mStore;
+    private final Executor mLoadExecutor;
+    private final Map<Integer, Prefetch> mPrefetches = new HashMap<>();
+    // Changes with every mutation, background pages read before a mutation are dropped
+    private int mGeneration;
+    private final Page[] mPages = new Page[MAX_PAGES];
+    private final Map<Long, Page> mPageById = new HashMap<>();
+    private int mPageCount;
+    private int mCount;
+    private int mLoadCount;
+
+    public PagedPictureList(PictureStore store) {
+        this(store, null);
+    }
+
+    /**
+     * @param loadExecutor runs background page loads, pages are read on the calling thread only when it's null
+     */
+    public PagedPictureList(PictureStore store, Executor loadExecutor) {
+        mStore = store;
+        mLoadExecutor = loadExecutor;
+        mCount = store.getCount();
+    }
+
+    public int size() {
+        return mCount;
+    }
+
+    public boolean isEmpty() {
+        return mCount == 0;
+    }
+
+    public UserPicture get(int position) {
+        if (position < 0 || position >= mCount) {
+            throw new IndexOutOfBoundsException("Position " + position + ", size " + mCount);
+        }
+        Page page = findPage(position / PAGE_SIZE);
+        if (page != null && position % PAGE_SIZE >= page.items.size()) {
+            // Page gave its last pictures to removals before it, read it again
+            dropPages(page.index, page.index);
+            page = null;
+        }
+        if (page == null) {
+            page = loadPage(position / PAGE_SIZE);
+        }
+        if (mLoadExecutor != null) {
+            prefetchAround(position);
+        }
+        return page.items.get(position % PAGE_SIZE);
+    }
+
+    /**
+     * @return position of the picture or -1, the store is queried only for pictures which aren't resident
+     */
+    public int indexOf(UserPicture picture) {
+        Page page = mPageById.get(picture.getId());
+        int index = page != null ? page.items.indexOf(picture) : -1;
+        return index >= 0 ? page.index * PAGE_SIZE + index : mStore.indexOf(picture.getId());
+    }
+
+    public void add(UserPicture picture) {
+        mStore.add(picture);
+        onChanged();
+        Page page = findPage(mCount / PAGE_SIZE);
+        if (page != null) {
+            page.items.add(picture);
+            mPageById.put(picture.getId(), page);
+        }
+        mCount++;
+    }
+
+    public UserPicture remove(int position) {
+        UserPicture picture = get(position);
+        mStore.remove(picture);
+        onChanged();
+        int index = position / PAGE_SIZE;
+        int lastIndex = (mCount - 1) / PAGE_SIZE;
+        Page page = findPage(index);
+        page.items.remove(position % PAGE_SIZE);
+        mPageById.remove(picture.getId());
+        // Every following picture shifts to the previous position, first pictures of following pages
+        // move to the end of previous ones while those are resident. A page left short is completed on access
+        while (index < lastIndex) {
+            Page next = findPage(index + 1);
+            if (next == null || page.items.size() != PAGE_SIZE - 1) {
+                dropPages(index + 1, Integer.MAX_VALUE);
+                break;
+            }
+            UserPicture shifted = next.items.remove(0);
+            page.items.add(shifted);
+            mPageById.put(shifted.getId(), page);
+            page = next;
+            index++;
+        }
+        mCount--;
+        return picture;
+    }
+
+    /**
+     * Puts a removed picture back at its place with a fresh key between its neighbours there,
+     * its old key may be taken by a moved picture or belong to another place after a rebalance
+     *
+     * @return true when keys of all pictures were rebalanced to make room for it
+     */
+    public boolean restore(UserPicture picture) {
+        int position = mStore.indexOfRemoved(picture.getId());
+        if (position < 0) {
+            return false;
+        }
+        long key = getKeyAt(position);
+        boolean isRebalanced = key == OrderKeys.NO_KEY;
+        if (isRebalanced) {
+            // Removed pictures are rebalanced along, the place stays the same
+            mStore.rebalance();
+            dropPages(0, Integer.MAX_VALUE);
+            key = getKeyAt(position);
+        }
+        picture.setOrder(key);
+        mStore.restore(picture);
+        onChanged();
+        mCount++;
+        dropPages(position / PAGE_SIZE, Integer.MAX_VALUE);
+        return isRebalanced;
+    }
+
+    /**
+     * @return true when keys of all pictures were rebalanced to make room for the moved one
+     */
+    public boolean move(int fromPosition, int toPosition) {
+        if (fromPosition == toPosition) {
+            return false;
+        }
+        UserPicture moved = get(fromPosition);
+        long key = getKeyBetween(fromPosition, toPosition);
+        boolean isRebalanced = key == OrderKeys.NO_KEY;
+        if (isRebalanced) {
+            // Neighbour keys are adjacent, spread all keys and reload pages holding stale ones
+            mStore.rebalance();
+            dropPages(0, Integer.MAX_VALUE);
+            moved = get(fromPosition);
+            key = getKeyBetween(fromPosition, toPosition);
+        }
+        moved.setOrder(key);
+        mStore.updateOrder(moved);
+        // Pages read in the background before the new key was written are stale
+        onChanged();
+        int fromPage = Math.min(fromPosition, toPosition) / PAGE_SIZE;
+        int toPage = Math.max(fromPosition, toPosition) / PAGE_SIZE;
+        if (!isResident(fromPage, toPage)) {
+            dropPages(fromPage, toPage);
+            return isRebalanced;
+        }
+        // Shift pictures in between by one across page boundaries instead of reloading pages
+        int step = fromPosition < toPosition ? 1 : -1;
+        for (int position = fromPosition; position != toPosition; position += step) {
+            set(position, peek(position + step));
+        }
+        set(toPosition, moved);
+        return isRebalanced;
+    }
+
+    /**
+     * Persists deferred changes of the store, e.g. once a drag gesture is finished
+     */
+    public void flush() {
+        mStore.flush();
+    }
+
+    int getResidentPageCount() {
+        return mPageCount;
+    }
+
+    /**
+     * @return number of pages loaded from the store so far
+     */
+    int getLoadCount() {
+        return mLoadCount;
+    }
+
+    /**
+     * @return key between new neighbours of the moved picture, they are taken in the order before the move
+     */
+    private long getKeyBetween(int fromPosition, int toPosition) {
+        int previous = fromPosition < toPosition ? toPosition : toPosition - 1;
+        int next = previous + 1;
+        return OrderKeys.between(previous >= 0 ? get(previous).getOrder() : OrderKeys.NO_KEY,
+                next < mCount ? get(next).getOrder() : OrderKeys.NO_KEY);
+    }
+
+    /**
+     * @return key between pictures at the position and before it, for a picture inserted there
+     */
+    private long getKeyAt(int position) {
+        return OrderKeys.between(position > 0 ? get(position - 1).getOrder() : OrderKeys.NO_KEY,
+                position < mCount ? get(position).getOrder() : OrderKeys.NO_KEY);
+    }
+
+    private UserPicture peek(int position) {
+        return findPage(position / PAGE_SIZE).items.get(position % PAGE_SIZE);
+    }
+
+    private void set(int position, UserPicture picture) {
+        Page page = findPage(position / PAGE_SIZE);
+        page.items.set(position % PAGE_SIZE, picture);
+        mPageById.put(picture.getId(), page);
+    }
+
+    /**
+     * @return true if all pages of the range are resident and none of them is short
+     */
+    private boolean isResident(int fromPage, int toPage) {
+        for (int index = fromPage; index <= toPage; index++) {
+            Page page = findPage(index);
+            if (page == null || page.items.size() < Math.min(PAGE_SIZE, mCount - index * PAGE_SIZE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Page findPage(int index) {
+        for (int i = 0; i < mPageCount; i++) {
+            if (mPages[i].index == index) {
+                return mPages[i];
+            }
+        }
+        return null;
+    }
+
+    private Page loadPage(int index) {
+        List<UserPicture> items = null;
+        Prefetch prefetch = mPrefetches.remove(index);
+        if (prefetch != null && prefetch.generation == mGeneration) {
+            // Still null when the background load hasn't finished yet
+            items = prefetch.items;
+        }
+        if (items == null) {
+            items = read(mStore, index, getKeyBefore(index), getKeyAfter(index));
+            mLoadCount++;
+        }
+        if (mPageCount == MAX_PAGES) {
+            evictFarthest(index);
+        }
+        Page page = new Page(index, new ArrayList<>(items));
+        mPages[mPageCount++] = page;
+        for (int i = 0; i < page.items.size(); i++) {
+            mPageById.put(page.items.get(i).getId(), page);
+        }
+        return page;
+    }
+
+    /**
+     * Reads a page by the key of a neighbour when one is known, by its offset otherwise
+     *
+     * @param keyBefore key of the last picture of the previous page or {@link OrderKeys#NO_KEY}
+     * @param keyAfter  key of the first picture of the next page or {@link OrderKeys#NO_KEY}
+     */
+    private static List<UserPicture> read(PictureStore store, int index, long keyBefore, long keyAfter) {
+        if (index == 0 || keyBefore != OrderKeys.NO_KEY) {
+            return store.loadAfter(keyBefore, PAGE_SIZE);
+        }
+        if (keyAfter != OrderKeys.NO_KEY) {
+            return store.loadBefore(keyAfter, PAGE_SIZE);
+        }
+        return store.load(index * PAGE_SIZE, PAGE_SIZE);
+    }
+
+    /**
+     * @return key of the last picture of the previous page if it's resident and complete
+     */
+    private long getKeyBefore(int index) {
+        Page previous = findPage(index - 1);
+        return previous != null && previous.items.size() == PAGE_SIZE
+                ? previous.items.get(PAGE_SIZE - 1).getOrder() : OrderKeys.NO_KEY;
+    }
+
+    /**
+     * @return key of the first picture of the next page if it's resident
+     */
+    private long getKeyAfter(int index) {
+        Page next = findPage(index + 1);
+        return next != null && !next.items.isEmpty() ? next.items.get(0).getOrder() : OrderKeys.NO_KEY;
+    }
+
+    /**
+     * Starts a background load of the page beyond the nearest edge when the position is close to it
+     */
+    private void prefetchAround(int position) {
+        int index = position / PAGE_SIZE;
+        int offset = position % PAGE_SIZE;
+        if (offset >= PAGE_SIZE - PREFETCH_DISTANCE) {
+            prefetch(index + 1);
+        } else if (offset < PREFETCH_DISTANCE) {
+            prefetch(index - 1);
+        }
+    }
+
+    private void prefetch(final int index) {
+        if (index < 0 || index * PAGE_SIZE >= mCount || findPage(index) != null) {
+            return;
+        }
+        Prefetch existing = mPrefetches.get(index);
+        if (existing != null && existing.generation == mGeneration) {
+            return;
+        }
+        final long keyBefore = getKeyBefore(index);
+        final long keyAfter = getKeyAfter(index);
+        if (index != 0 && keyBefore == OrderKeys.NO_KEY && keyAfter == OrderKeys.NO_KEY) {
+            // No neighbour to read from, an offset read is left to an actual access
+            return;
+        }
+        final Prefetch prefetch = new Prefetch(mGeneration);
+        mPrefetches.put(index, prefetch);
+        mLoadCount++;
+        mLoadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                prefetch.items = read(mStore, index, keyBefore, keyAfter);
+            }
+        });
+    }
+
+    private void onChanged() {
+        mGeneration++;
+        mPrefetches.clear();
+    }
+
+    private void evictFarthest(int index) {
+        int farthest = 0;
+        for (int i = 1; i < mPageCount; i++) {
+            if (Math.abs(mPages[i].index - index) > Math.abs(mPages[farthest].index - index)) {
+                farthest = i;
+            }
+        }
+        removePageAt(farthest);
+    }
+
+    private void dropPages(int fromPage, int toPage) {
+        for (int i = mPageCount - 1; i >= 0; i--) {
+            if (mPages[i].index >= fromPage && mPages[i].index <= toPage) {
+                removePageAt(i);
+            }
+        }
+    }
+
+    private void removePageAt(int i) {
+        Page page = mPages[i];
+        for (int j = 0; j < page.items.size(); j++) {
+            long id = page.items.get(j).getId();
+            if (mPageById.get(id) == page) {
+                mPageById.remove(id);
+            }
+        }
+        mPages[i] = mPages[--mPageCount];
+        mPages[mPageCount] = null;
+    }
+
+    private static class Prefetch {
+
+        private final int generation;
+        private volatile List<UserPicture> items;
+
+        private Prefetch(int generation) {
+            this.generation = generation;
+        }
+
+    }
+
+    private static class Page {
+
+        private final int index;
+        private final List<UserPicture> items;
+
+        private Page(int index, List<UserPicture> items) {
+            this.index = index;
+            this.items = items;
+        }
+
+    }
+
+}
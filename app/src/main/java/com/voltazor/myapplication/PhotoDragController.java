@@ -1,10 +1,15 @@
 package com.voltazor.myapplication;
 
+import android.graphics.Bitmap;
 import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
-import android.util.Pair;
+import android.util.LongSparseArray;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.animation.OvershootInterpolator;
 import android.widget.ImageView;
 
@@ -12,11 +17,7 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-
-import timber.log.Timber;
 
 /**
  * Created by voltazor on 11/04/16.
@@ -24,23 +25,95 @@ import timber.log.Timber;
 public class PhotoDragController implements RecyclerView.OnItemTouchListener {
 
     private static final long DURATION = 250;
+    private static final float AUTO_SCROLL_EDGE_DP = 72;
+    // Speed at the very edge of the list, it falls off linearly towards the inner side of the edge zone
+    private static final float AUTO_SCROLL_MAX_SPEED_DP = 1500;
+    private static final long FRAME_NANOS = 16666667;
 
     private boolean isHold;
     private volatile boolean isDropEnabled;
     private final ImageView mThumbView;
+    private Bitmap mThumbBitmap;
     private ItemViewHelper mViewHelper;
+    private long mDraggedId;
+    // Dragged item scrolled out and its holder was recycled, there is nothing to drop until it's bound again
+    private boolean isDraggedDetached;
+
+    private final float mAutoScrollEdge;
+    private final float mAutoScrollMaxSpeed;
+    private float mListTop, mListBottom;
+    private float mTouchRawY;
+    private boolean isMovePending;
+    private boolean isFrameScheduled;
+    private long mLastFrameTimeNanos;
+
+    /**
+     * Scrolls the list while the finger stays at its edge and evaluates drops,
+     * at most once per frame however many touch events arrived in between
+     */
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            isFrameScheduled = false;
+            if (!isHold) {
+                return;
+            }
+            if (isMovePending) {
+                mInputToFrame.record(frameTimeNanos - mPendingEventNanos);
+            }
+            boolean isScrolled = autoScroll(frameTimeNanos);
+            if (isDropEnabled && !isDraggedDetached && (isMovePending || isScrolled)) {
+                performDropIfRequired();
+            }
+            isMovePending = false;
+            if (isScrolled) {
+                scheduleFrame();
+            } else {
+                mLastFrameTimeNanos = 0;
+            }
+        }
+    };
 
     private final int mPos[] = new int[2];
     private final Rect mPadding = new Rect();
-    private final Rect mSourceRect = new Rect();
-    private final Rect mTargetRect = new Rect();
-    private final Rect mIntersection = new Rect();
+    private final RectF mItemRect = new RectF();
+    // Screen position of the untranslated thumb, taken once per drag so moves only update translation
+    private float mThumbDx, mThumbDy;
+
+    // Time of the first move event the next frame handles. Input to frame time is measured from it
+    // to the frame callback, rendering of the frame isn't included
+    private long mPendingEventNanos;
+    private Histogram mInputToFrame;
 
     private OnDragEventListener mDragEventListener;
-    private List<Integer> mCollidedHolders = new ArrayList<>();
-    private Map<Integer, Integer> mCollisionValue = new HashMap<>();
-    private Map<Integer, ItemViewHelper> mViewHelperMap = new HashMap<>();
-    private Map<Integer, ViewInfo> mViewInfoMap = new HashMap<>();
+    // Keyed by stable item id and holding live holders only, so reorders don't invalidate them
+    private final LongSparseArray<ItemViewHelper> mViewHelpers = new LongSparseArray<>();
+
+    // Geometry of all bound items, shifted by scroll. Binds and recycles only mark it dirty, it's rebuilt
+    // from laid out views by the next drop check, once per layout pass or auto-scroll step at most
+    private final DropTargetIndex mDropTargets = new DropTargetIndex();
+    private boolean isDropTargetsDirty;
+    // Helper of every entry
+    private final List<ItemViewHelper> mDropTargetHelpers = new ArrayList<>();
+    // Entry of every item in the index by stable id
+    private final LongSparseArray<Integer> mDropTargetEntries = new LongSparseArray<>();
+    private RecyclerView mRecyclerView;
+
+    private final RecyclerView.OnScrollListener mScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            if (mDropTargets.isBuilt()) {
+                mDropTargets.offset(-dx, -dy);
+            }
+        }
+    };
+
+    private final ViewTreeObserver.OnGlobalLayoutListener mLayoutListener = new ViewTreeObserver.OnGlobalLayoutListener() {
+        @Override
+        public void onGlobalLayout() {
+            invalidateDropTargets();
+        }
+    };
 
     public PhotoDragController(@NonNull DragHelperAdapter dragHelper, @NonNull ImageView thumbView, @NonNull View animatedView) {
         this(dragHelper, thumbView, animatedView, null);
@@ -52,12 +125,26 @@ public class PhotoDragController implements RecyclerView.OnItemTouchListener {
         mThumbView.setBackgroundResource(R.drawable.shadow);
         mThumbView.getBackground().getPadding(mPadding);
         mDragEventListener = dragEventListener;
+        float density = thumbView.getResources().getDisplayMetrics().density;
+        mAutoScrollEdge = AUTO_SCROLL_EDGE_DP * density;
+        mAutoScrollMaxSpeed = AUTO_SCROLL_MAX_SPEED_DP * density;
     }
 
     public void setDragEventListener(OnDragEventListener dragEventListener) {
         mDragEventListener = dragEventListener;
     }
 
+    /**
+     * Registers controller as touch listener of the given RecyclerView and keeps
+     * drop targets index in sync with its scroll and layout changes
+     */
+    public void attachToRecyclerView(@NonNull RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+        recyclerView.addOnItemTouchListener(this);
+        recyclerView.addOnScrollListener(mScrollListener);
+        recyclerView.getViewTreeObserver().addOnGlobalLayoutListener(mLayoutListener);
+    }
+
     @Override
     public boolean onInterceptTouchEvent(RecyclerView rv, MotionEvent e) {
         if (e.getAction() == MotionEvent.ACTION_UP) {
@@ -89,30 +176,37 @@ public class PhotoDragController implements RecyclerView.OnItemTouchListener {
 
     }
 
-    public void updateViewHelper(int position, ItemViewHelper viewHelper) {
-        mViewHelperMap.put(position, viewHelper);
-        if (mViewHelper != null && mViewHelper.getItemPosition() == position) {
+    /**
+     * Registers a bound item, called on every bind so the helper of an id is always the live one
+     */
+    public void updateViewHelper(ItemViewHelper viewHelper) {
+        long id = viewHelper.getItemId();
+        mViewHelpers.put(id, viewHelper);
+        if (mViewHelper != null && mDraggedId == id) {
             mViewHelper = viewHelper;
+            isDraggedDetached = false;
+            if (mThumbView.getVisibility() == View.VISIBLE) {
+                viewHelper.getItemView().setVisibility(View.INVISIBLE);
+            }
         }
+        // The view may not be laid out at its new place yet
+        isDropTargetsDirty = true;
     }
 
-    public boolean isViewInfoNeeded(int position) {
-        return !mViewInfoMap.containsKey(position);
-    }
-
-    public void setViewInfo(int position, View view) {
-        if (isViewInfoNeeded(position)) {
-            view.getLocationOnScreen(mPos);
-            mViewInfoMap.put(position, new ViewInfo(position, mPos[0], mPos[1], view.getWidth(), view.getHeight()));
-            Timber.d(mViewInfoMap.get(position).toString());
+    /**
+     * Forgets a recycled item, its geometry goes away with the next rebuild
+     */
+    public void removeViewHelper(ItemViewHelper viewHelper) {
+        long id = viewHelper.getItemId();
+        if (mViewHelpers.get(id) == viewHelper) {
+            mViewHelpers.remove(id);
         }
-    }
-
-    public void removeViewHelper(int position) {
-        mViewHelperMap.remove(position);
-        if (mViewHelper != null && mViewHelper.getItemPosition() == position) {
-            mViewHelper = null;
+        if (viewHelper == mViewHelper) {
+            // The holder will be reused for another picture, so it must not stay hidden
+            viewHelper.getItemView().setVisibility(View.VISIBLE);
+            isDraggedDetached = true;
         }
+        isDropTargetsDirty = true;
     }
 
     public void viewSelected(ItemViewHelper viewHelper, float rawX, float rawY) {
@@ -122,34 +216,60 @@ public class PhotoDragController implements RecyclerView.OnItemTouchListener {
             mDragEventListener.onDragStarted();
         }
         mViewHelper = viewHelper;
+        mDraggedId = viewHelper.getItemId();
+        isDraggedDetached = false;
+        isMovePending = false;
+        mLastFrameTimeNanos = 0;
+        mInputToFrame = Metrics.get().getHistogram(BuildConfig.DRAG_THUMB_LAYER
+                ? Metrics.HISTOGRAM_DRAG_INPUT_TO_FRAME : Metrics.HISTOGRAM_DRAG_INPUT_TO_FRAME_NO_LAYER);
+        Metrics.get().getFrameMonitor().begin(FrameMonitor.PHASE_DRAG);
         View view = mViewHelper.getItemView();
-        ViewInfo viewInfo = getViewInfo();
-        mThumbView.setImageDrawable(mViewHelper.getItemDrawable());
+        RectF itemRect = getItemRect();
+        Drawable drawable = mViewHelper.getItemDrawable();
+        mThumbView.setImageDrawable(drawable);
+        // The dragged holder may be recycled mid-drag, the thumb keeps its bitmap out of the pool meanwhile
+        releaseThumbBitmap();
+        if (drawable instanceof BitmapDrawable) {
+            mThumbBitmap = ((BitmapDrawable) drawable).getBitmap();
+            ThumbnailCache.get().getMemoryCache().acquire(mThumbBitmap);
+        }
         mThumbView.setBackgroundResource(R.drawable.shadow);
 
         float thumbWidth = mThumbView.getWidth() + mPadding.width();
         float thumbHeight = mThumbView.getHeight() + mPadding.height();
 
-        float scaleX = (float) viewInfo.width / thumbWidth;
-        float scaleY = (float) viewInfo.height / thumbHeight;
-
-        mThumbView.setScaleX(scaleX);
-        mThumbView.setScaleY(scaleY);
+        float scaleX = itemRect.width() / thumbWidth;
+        float scaleY = itemRect.height() / thumbHeight;
 
+        mThumbView.setScaleX(1);
+        mThumbView.setScaleY(1);
         mThumbView.getLocationOnScreen(mPos);
-        float thumbDx = mPos[0] - mThumbView.getX();
-        float thumbDy = mPos[1] - mThumbView.getY();
+        mThumbDx = mPos[0] - mThumbView.getTranslationX();
+        mThumbDy = mPos[1] - mThumbView.getTranslationY();
+        if (mRecyclerView != null) {
+            mRecyclerView.getLocationOnScreen(mPos);
+            mListTop = mPos[1];
+            mListBottom = mPos[1] + mRecyclerView.getHeight();
+        }
 
-        mThumbView.setX(viewInfo.x - thumbDx);
-        mThumbView.setY(viewInfo.y - thumbDy);
+        mThumbView.setScaleX(scaleX);
+        mThumbView.setScaleY(scaleY);
+        mThumbView.setTranslationX(itemRect.left - mThumbDx);
+        mThumbView.setTranslationY(itemRect.top - mThumbDy);
 
-        mThumbView.getLocationOnScreen(mPos);
+        // Scaled thumb corner on screen
+        float thumbLeft = itemRect.left + mThumbView.getPivotX() * (1 - scaleX);
+        float thumbTop = itemRect.top + mThumbView.getPivotY() * (1 - scaleY);
 
         float posX = rawX - mThumbView.getPivotX();
         float posY = rawY - mThumbView.getPivotY();
-        float x = posX - mPos[0] - viewInfo.width * (1 - (thumbWidth / (float) viewInfo.width)) / 2f;
-        float y = posY - mPos[1] - viewInfo.height * (1 - (thumbHeight / (float) viewInfo.height)) / 2f;
+        float x = posX - thumbLeft - itemRect.width() * (1 - (thumbWidth / itemRect.width())) / 2f;
+        float y = posY - thumbTop - itemRect.height() * (1 - (thumbHeight / itemRect.height())) / 2f;
 
+        // Photo and shadow are drawn into the layer once, the drag only moves and scales it
+        if (BuildConfig.DRAG_THUMB_LAYER) {
+            mThumbView.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        }
         mThumbView.setVisibility(View.VISIBLE);
         view.setVisibility(View.INVISIBLE);
         mThumbView.animate().setInterpolator(new OvershootInterpolator()).setDuration(DURATION)
@@ -157,113 +277,197 @@ public class PhotoDragController implements RecyclerView.OnItemTouchListener {
     }
 
     private void moveThumb(MotionEvent e) {
-        mThumbView.getLocationOnScreen(mPos);
-        float thumbDx = mPos[0] - mThumbView.getX();
-        float thumbDy = mPos[1] - mThumbView.getY();
-        mThumbView.setX(e.getRawX() - thumbDx - mThumbView.getPivotX());
-        mThumbView.setY(e.getRawY() - thumbDy - mThumbView.getPivotY());
+        mTouchRawY = e.getRawY();
+        mThumbView.setTranslationX(e.getRawX() - mThumbDx - mThumbView.getPivotX());
+        mThumbView.setTranslationY(mTouchRawY - mThumbDy - mThumbView.getPivotY());
 
-        if (isDropEnabled) {
-            performDropIfRequired();
+        if (!isMovePending) {
+            // Event time is uptime based, the same clock as frame time
+            mPendingEventNanos = e.getEventTime() * 1000000L;
         }
+        isMovePending = true;
+        scheduleFrame();
     }
 
-    private void performDropIfRequired() {
-        mCollidedHolders.clear();
-        for (ItemViewHelper helper : mViewHelperMap.values()) {
-            if (helper != null && helper.getItemPosition() != mViewHelper.getItemPosition()) {
-                Pair<Boolean, Integer> collision = checkCollision(mThumbView, helper.getItemView());
-                if (collision.first) {
-                    int position = helper.getItemPosition();
-                    mCollisionValue.put(position, collision.second);
-                    mCollidedHolders.add(position);
-                }
-            }
+    private void scheduleFrame() {
+        if (!isFrameScheduled) {
+            isFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
         }
-        int maxInterceptionSquare = 0;
-        int chosenPosition = -1;
-        for (int position : mCollidedHolders) {
-            int interceptionSquare = mCollisionValue.get(position);
-            if (maxInterceptionSquare < interceptionSquare) {
-                maxInterceptionSquare = interceptionSquare;
-                chosenPosition = position;
-            }
+    }
+
+    private void cancelFrame() {
+        if (isFrameScheduled) {
+            isFrameScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        }
+        isMovePending = false;
+        mLastFrameTimeNanos = 0;
+    }
+
+    /**
+     * Scrolls the list when the finger is inside one of its edge zones, the closer to the edge
+     * the faster. Distance is scaled by the real frame interval, so speed doesn't depend on frame drops
+     *
+     * @return true if the list was scrolled
+     */
+    private boolean autoScroll(long frameTimeNanos) {
+        if (mRecyclerView == null) {
+            return false;
+        }
+        int direction;
+        float proximity;
+        if (mTouchRawY < mListTop + mAutoScrollEdge) {
+            direction = -1;
+            proximity = (mListTop + mAutoScrollEdge - mTouchRawY) / mAutoScrollEdge;
+        } else if (mTouchRawY > mListBottom - mAutoScrollEdge) {
+            direction = 1;
+            proximity = (mTouchRawY - mListBottom + mAutoScrollEdge) / mAutoScrollEdge;
+        } else {
+            return false;
+        }
+        if (!mRecyclerView.canScrollVertically(direction)) {
+            return false;
         }
-        ItemViewHelper helper = mViewHelperMap.get(chosenPosition);
-        if (helper != null) {
+        long frameNanos = mLastFrameTimeNanos != 0 ? frameTimeNanos - mLastFrameTimeNanos : FRAME_NANOS;
+        mLastFrameTimeNanos = frameTimeNanos;
+        float distance = Math.min(1, proximity) * mAutoScrollMaxSpeed * frameNanos / 1e9f;
+        mRecyclerView.scrollBy(0, direction * Math.max(1, Math.round(distance)));
+        return true;
+    }
+
+    private void performDropIfRequired() {
+        // Items bound by an auto-scroll step are laid out by the scroll already, so the rebuild takes them
+        // before the drop is evaluated. Without new binds the scroll listener has shifted the index
+        if (!mDropTargets.isBuilt() || isDropTargetsDirty) {
+            buildDropTargets();
+        }
+        float left = mThumbView.getTranslationX() + mThumbDx;
+        float top = mThumbView.getTranslationY() + mThumbDy;
+        int chosenEntry = mDropTargets.findDropTarget(left, top, left + mThumbView.getWidth(),
+                top + mThumbView.getHeight(), mViewHelper.getItemPosition());
+        if (chosenEntry != DropTargetIndex.NO_ENTRY) {
+            ItemViewHelper helper = mDropTargetHelpers.get(chosenEntry);
             if (mDragEventListener != null) {
                 isDropEnabled = !mDragEventListener.onItemMoved(mViewHelper, helper);
             }
         }
     }
 
+    private void invalidateDropTargets() {
+        mDropTargets.clear();
+        mDropTargetHelpers.clear();
+        mDropTargetEntries.clear();
+        isDropTargetsDirty = false;
+    }
+
+    /**
+     * Caches screen rectangles of all bound items. Only the list itself is located on screen,
+     * items are placed by their layout position, so a rebuild costs a single location query
+     * and runs at most once per layout pass or change of bound items
+     */
+    private void buildDropTargets() {
+        invalidateDropTargets();
+        if (mRecyclerView == null) {
+            return;
+        }
+        mRecyclerView.getLocationOnScreen(mPos);
+        for (int i = 0; i < mViewHelpers.size(); i++) {
+            ItemViewHelper helper = mViewHelpers.valueAt(i);
+            int position = helper != null ? helper.getItemPosition() : RecyclerView.NO_POSITION;
+            if (position == RecyclerView.NO_POSITION) {
+                continue;
+            }
+            View view = helper.getItemView();
+            // Prefetched views are bound before they're attached and laid out
+            if (view.getParent() != mRecyclerView || view.getWidth() == 0 || view.getHeight() == 0) {
+                continue;
+            }
+            float left = mPos[0] + view.getLeft();
+            float top = mPos[1] + view.getTop();
+            int entry = mDropTargets.add(position, left, top, left + view.getWidth(), top + view.getHeight());
+            mDropTargetHelpers.add(helper);
+            mDropTargetEntries.put(helper.getItemId(), entry);
+        }
+        mDropTargets.build();
+    }
+
+    /**
+     * @return screen rectangle of the dragged item taken from the cached geometry
+     */
+    private RectF getItemRect() {
+        if (!mDropTargets.isBuilt() || isDropTargetsDirty) {
+            buildDropTargets();
+        }
+        Integer entry = mDropTargetEntries.get(mDraggedId);
+        if (entry != null) {
+            mItemRect.set(mDropTargets.getLeft(entry), mDropTargets.getTop(entry),
+                    mDropTargets.getRight(entry), mDropTargets.getBottom(entry));
+            return mItemRect;
+        }
+        View view = mViewHelper.getItemView();
+        view.getLocationOnScreen(mPos);
+        mItemRect.set(mPos[0], mPos[1], mPos[0] + view.getWidth(), mPos[1] + view.getHeight());
+        return mItemRect;
+    }
+
     private void animateToOriginal() {
+        cancelFrame();
+        if (isDraggedDetached) {
+            // The dragged item is out of the screen, there is no place to animate the thumb to
+            finishDrag();
+            return;
+        }
         final View view = mViewHelper.getItemView();
-        ViewInfo viewInfo = getViewInfo();
-        if (viewInfo != null) {
+        RectF itemRect = getItemRect();
+        if (!itemRect.isEmpty()) {
             mThumbView.setBackground(null);
             mThumbView.setPadding(0, 0, 0, 0);
 
-            float scaleX = (float) viewInfo.width / (float) mThumbView.getWidth();
-            float scaleY = (float) viewInfo.height / (float) mThumbView.getHeight();
-
-            float viewX = viewInfo.x;
-            float viewY = viewInfo.y;
+            float scaleX = itemRect.width() / (float) mThumbView.getWidth();
+            float scaleY = itemRect.height() / (float) mThumbView.getHeight();
 
-            mThumbView.getLocationOnScreen(mPos);
+            float thumbLeft = mThumbView.getTranslationX() + mThumbDx + mThumbView.getPivotX() * (1 - mThumbView.getScaleX());
+            float thumbTop = mThumbView.getTranslationY() + mThumbDy + mThumbView.getPivotY() * (1 - mThumbView.getScaleY());
 
-            float x = viewX - mPos[0] - mThumbView.getWidth() * (1 - scaleX) / 2f;
-            float y = viewY - mPos[1] - mThumbView.getHeight() * (1 - scaleY) / 2f;
+            float x = itemRect.left - thumbLeft - mThumbView.getWidth() * (1 - scaleX) / 2f;
+            float y = itemRect.top - thumbTop - mThumbView.getHeight() * (1 - scaleY) / 2f;
 
             mThumbView.animate().setInterpolator(new OvershootInterpolator()).setDuration(DURATION)
                     .translationXBy(x).translationYBy(y).scaleX(scaleX).scaleY(scaleY).withEndAction(new Runnable() {
                 @Override
                 public void run() {
                     view.setVisibility(View.VISIBLE);
-                    mThumbView.setVisibility(View.INVISIBLE);
-                    isHold = false;
-                    isDropEnabled = false;
-                    if (mDragEventListener != null) {
-                        mDragEventListener.onDragFinished();
-                    }
+                    finishDrag();
                 }
             });
         } else {
             view.setVisibility(View.VISIBLE);
             mThumbView.setVisibility(View.INVISIBLE);
+            mThumbView.setLayerType(View.LAYER_TYPE_NONE, null);
+            Metrics.get().getFrameMonitor().end(FrameMonitor.PHASE_DRAG);
         }
 
     }
 
-    private ViewInfo getViewInfo() {
-        ViewInfo viewInfo = mViewInfoMap.get(mViewHelper.getItemPosition());
-        if (viewInfo == null) {
-            View v = mViewHelper.getItemView();
-            viewInfo = new ViewInfo(mViewHelper.getItemPosition(), v.getX(), v.getY(), v.getWidth(), v.getHeight());
+    private void finishDrag() {
+        mThumbView.setVisibility(View.INVISIBLE);
+        mThumbView.setLayerType(View.LAYER_TYPE_NONE, null);
+        mThumbView.setImageDrawable(null);
+        releaseThumbBitmap();
+        isHold = false;
+        isDropEnabled = false;
+        Metrics.get().getFrameMonitor().end(FrameMonitor.PHASE_DRAG);
+        if (mDragEventListener != null) {
+            mDragEventListener.onDragFinished();
         }
-        return viewInfo;
     }
 
-    private Pair<Boolean, Integer> checkCollision(View source, View target) {
-        source.getLocationOnScreen(mPos);
-        mSourceRect.set(mPos[0], mPos[1], mPos[0] + source.getWidth(), mPos[1] + source.getHeight());
-        int sourceSquare = mSourceRect.width() * mSourceRect.height();
-
-        target.getLocationOnScreen(mPos);
-        mTargetRect.set(mPos[0], mPos[1], mPos[0] + target.getWidth(), mPos[1] + target.getHeight());
-        int targetSquare = mTargetRect.width() * mTargetRect.height();
-
-        if (mSourceRect.intersect(mTargetRect)) {
-            mIntersection.setEmpty();
-            if (mIntersection.setIntersect(mSourceRect, mTargetRect)) {
-                int interceptionSquare = mIntersection.width() * mIntersection.height();
-                if (interceptionSquare > (targetSquare * .5f) || interceptionSquare > (sourceSquare * .5f)
-                        || (mSourceRect.bottom < mTargetRect.bottom && mSourceRect.top > mTargetRect.top)) {
-                    return new Pair<>(true, interceptionSquare);
-                }
-            }
+    private void releaseThumbBitmap() {
+        if (mThumbBitmap != null) {
+            ThumbnailCache.get().getMemoryCache().release(mThumbBitmap);
+            mThumbBitmap = null;
         }
-        return new Pair<>(false, 0);
     }
 
     public void unblockController() {
@@ -294,32 +498,11 @@ public class PhotoDragController implements RecyclerView.OnItemTouchListener {
 
         int getItemPosition();
 
-    }
-
-    private static class ViewInfo {
-
-        public final int position;
-        public final float x, y;
-        public final int width, height;
+        /**
+         * @return stable id of the item, it doesn't change when the item moves
+         */
+        long getItemId();
 
-        public ViewInfo(int position, float x, float y, int width, int height) {
-            this.position = position;
-            this.x = x;
-            this.y = y;
-            this.width = width;
-            this.height = height;
-        }
-
-        @Override
-        public String toString() {
-            return "ViewInfo{" +
-                    "position=" + position +
-                    ", x=" + x +
-                    ", y=" + y +
-                    ", width=" + width +
-                    ", height=" + height +
-                    '}';
-        }
     }
 
 }
@@ -0,0 +1,188 @@
+package com.voltazor.myapplication;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.squareup.okhttp.OkHttpClient;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import timber.log.Timber;
+
+/**
+ * Adds picked photos: the photo is downscaled and re-encoded on a worker thread into app storage,
+ * handed over to be shown right away from the local file, then uploaded with {@link ChunkedUploader}.
+ * Uploads share a bounded pool and report byte progress by the local picture url,
+ * so the tile's {@link ProgressVector} follows it. The local file is kept, a failed upload is retried from it.
+ */
+public class PhotoUploader {
+
+    private static final int MAX_CONCURRENT_UPLOADS = 2;
+    private static final int MAX_SIDE = 1600;
+    private static final int JPEG_QUALITY = 85;
+
+    private final Context mContext;
+    private final ChunkedUploader mUploader;
+    private final Callback mCallback;
+    private final File mDirectory;
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_UPLOADS);
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    public PhotoUploader(Context context, OkHttpClient client, String baseUrl, @NonNull Callback callback) {
+        mContext = context.getApplicationContext();
+        mUploader = new ChunkedUploader(client, baseUrl);
+        mCallback = callback;
+        mDirectory = new File(context.getFilesDir(), "photos");
+    }
+
+    public void upload(final Uri source) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final UserPicture picture = new UserPicture();
+                final File file;
+                try {
+                    file = prepare(source);
+                } catch (IOException e) {
+                    Timber.w(e, "Unable to read %s", source);
+                    return;
+                }
+                picture.setPictureUrl(Uri.fromFile(file).toString());
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mCallback.onPhotoPrepared(picture);
+                    }
+                });
+                send(picture, file);
+            }
+        });
+    }
+
+    /**
+     * Uploads the local file of a picture again, after {@link Callback#onUploadFinished} reported a failure
+     * or an upload was stopped by {@link #shutdown()}
+     */
+    public void retry(final UserPicture picture) {
+        final File file = new File(Uri.parse(picture.getPictureUrl()).getPath());
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                send(picture, file);
+            }
+        });
+    }
+
+    private void send(final UserPicture picture, File file) {
+        String location = null;
+        try {
+            location = mUploader.upload(file, new SourceFetcher.ProgressListener() {
+                @Override
+                public void onProgress(long bytesRead, long contentLength) {
+                    ThumbnailCache.get().notifyProgress(picture.getPictureUrl(), bytesRead, contentLength);
+                }
+            });
+        } catch (IOException e) {
+            Timber.w(e, "Unable to upload %s", file);
+        }
+        final String uploadUrl = location;
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mCallback.onUploadFinished(picture, uploadUrl);
+            }
+        });
+    }
+
+    /**
+     * Stops running uploads, they're interrupted between chunks, and drops pending callbacks
+     */
+    public void shutdown() {
+        mExecutor.shutdownNow();
+        mHandler.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * Decodes the source sampled close to {@link #MAX_SIDE}, scales it down exactly and writes a JPEG
+     */
+    private File prepare(Uri source) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decode(source, options);
+        int maxSide = Math.max(options.outWidth, options.outHeight);
+        if (maxSide <= 0) {
+            throw new IOException("Not an image");
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = 1;
+        while (maxSide / (options.inSampleSize * 2) >= MAX_SIDE) {
+            options.inSampleSize *= 2;
+        }
+        Bitmap bitmap = decode(source, options);
+        if (bitmap == null) {
+            throw new IOException("Unable to decode");
+        }
+        float scale = (float) MAX_SIDE / Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (scale < 1) {
+            Bitmap scaled = Bitmap.createScaledBitmap(bitmap, Math.round(bitmap.getWidth() * scale),
+                    Math.round(bitmap.getHeight() * scale), true);
+            bitmap.recycle();
+            bitmap = scaled;
+        }
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Unable to create " + mDirectory);
+        }
+        File file = new File(mDirectory, UUID.randomUUID() + ".jpg");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        } finally {
+            out.close();
+            bitmap.recycle();
+        }
+        return file;
+    }
+
+    private Bitmap decode(Uri source, BitmapFactory.Options options) throws IOException {
+        InputStream in = mContext.getContentResolver().openInputStream(source);
+        if (in == null) {
+            throw new IOException("Unable to open " + source);
+        }
+        try {
+            return BitmapFactory.decodeStream(in, null, options);
+        } finally {
+            in.close();
+        }
+    }
+
+    public interface Callback {
+
+        /**
+         * Local copy of the photo is ready to be shown, called on the main thread
+         */
+        void onPhotoPrepared(UserPicture picture);
+
+        /**
+         * Called on the main thread
+         *
+         * @param uploadUrl location of the upload on the server, null when it failed
+         */
+        void onUploadFinished(UserPicture picture, @Nullable String uploadUrl);
+
+    }
+
+}
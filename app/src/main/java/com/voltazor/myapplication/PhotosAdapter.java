@@ -3,13 +3,16 @@ package com.voltazor.myapplication;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Rect;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.util.LongSparseArray;
 import android.view.GestureDetector;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.FrameLayout;
+import android.view.ViewTreeObserver;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
@@ -18,18 +21,20 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.squareup.picasso.Callback;
 import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
 import com.voltazor.myapplication.PhotoDragController.DragHelperAdapter;
 import com.voltazor.myapplication.PhotoDragController.ItemViewHelper;
 import com.voltazor.myapplication.PhotoDragController.OnDragEventListener;
 
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by voltazor on 11/04/16.
  */
-public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.PhotoViewHolder> implements DragHelperAdapter, OnDragEventListener {
+public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.PhotoViewHolder> implements DragHelperAdapter, OnDragEventListener,
+        ThumbnailPrefetcher.ThumbnailProvider {
 
     private static final int ANIM_DURATION = 300;
 
@@ -39,18 +44,59 @@ public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.PhotoViewH
     private static final int MAIN_PHOTO_POS = 0;
     private static final int COUNT = 5;
 
+    /**
+     * Partial rebind payload: only position dependent state of the item changed,
+     * so the image is kept and no new request is fired
+     */
+    static final Object PAYLOAD_POSITION = new Object();
+
+    /**
+     * Partial rebind payload: upload state of the item changed
+     */
+    private static final Object PAYLOAD_UPLOAD = new Object();
+
     private Context mContext;
     private boolean isBroAvatar;
     private LayoutInflater mLayoutInflater;
-    private List<UserPicture> mUserPictures;
+    private PagedPictureList mUserPictures;
     private PhotosControlCallback mCallback;
     private GridLayoutManager mLayoutManager;
     private PhotoDragController mPhotoDragController;
 
-    private View mAnimatedView;
-    private Map<Integer, PhotoViewHolder> mViewHolderMap = new HashMap<>();
+    private RecyclerView mRecyclerView;
+    private TileSwapAnimator mSwapAnimator;
+    private boolean isWaitingForMove;
+
+    private final ViewTreeObserver.OnPreDrawListener mPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (isWaitingForMove && mRecyclerView != null && !mRecyclerView.hasPendingAdapterUpdates()) {
+                // Move is laid out and its animations are scheduled by now
+                isWaitingForMove = false;
+                RecyclerView.ItemAnimator itemAnimator = mRecyclerView.getItemAnimator();
+                if (itemAnimator != null) {
+                    itemAnimator.isRunning(mMoveFinishedListener);
+                } else {
+                    unblockController();
+                }
+            }
+            return true;
+        }
+    };
 
-    public PhotosAdapter(Context context, List<UserPicture> pictures, GridLayoutManager layoutManager, PhotosControlCallback callback, boolean isBroAvatar) {
+    private final RecyclerView.ItemAnimator.ItemAnimatorFinishedListener mMoveFinishedListener =
+            new RecyclerView.ItemAnimator.ItemAnimatorFinishedListener() {
+                @Override
+                public void onAnimationsFinished() {
+                    unblockController();
+                }
+            };
+
+    // Live holders keyed by stable picture id, holders leave it when recycled
+    private LongSparseArray<PhotoViewHolder> mViewHolders = new LongSparseArray<>();
+    private Set<Long> mUploadingIds = new HashSet<>();
+
+    public PhotosAdapter(Context context, PagedPictureList pictures, GridLayoutManager layoutManager, PhotosControlCallback callback, boolean isBroAvatar) {
         mContext = context;
         mCallback = callback;
         mUserPictures = pictures;
@@ -65,108 +111,239 @@ public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.PhotoViewH
         });
     }
 
+    /**
+     * Listeners and load callbacks are created here once per holder, they resolve
+     * the picture through the holder's current binding, so binding allocates none
+     */
     @Override
     public PhotoViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-        return new PhotoViewHolder(mLayoutInflater.inflate(R.layout.item_photo, parent, false));
+        final PhotoViewHolder holder = new PhotoViewHolder(mLayoutInflater.inflate(R.layout.item_photo, parent, false));
+        holder.mAddPhotoListener = new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                holder.progress.start();
+                mCallback.onAddPhoto();
+            }
+        };
+        holder.mRemovePhotoListener = new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                if (holder.mPicture != null) {
+                    mCallback.onRemovePhoto(holder.mPicture);
+                }
+            }
+        };
+        holder.mLoadCallback = new Callback() {
+            @Override
+            public void onSuccess() {
+                Metrics.get().recordImageLoad(System.nanoTime() - holder.mLoadStartNanos);
+                ThumbnailCache.get().getTracer().onDisplayed(holder.mUri);
+                holder.acquireBitmap();
+                stopProgress(holder);
+            }
+
+            @Override
+            public void onError() {
+                ThumbnailCache.get().getTracer().cancel(holder.mUri);
+                stopProgress(holder);
+            }
+        };
+        holder.mPreviewCallback = new Callback() {
+            @Override
+            public void onSuccess() {
+                holder.acquireBitmap();
+                // Full span thumbnail is requested only now, its queue wait starts here
+                ThumbnailCache.get().getTracer().begin(holder.mUri, MAIN_PHOTO_POS, mLayoutManager.getSpanCount());
+                loadPhoto(holder, Picasso.Priority.HIGH, holder.photo.getDrawable());
+            }
+
+            @Override
+            public void onError() {
+                loadPhoto(holder, Picasso.Priority.HIGH, null);
+            }
+        };
+        return holder;
     }
 
     @Override
-    public void onBindViewHolder(final PhotoViewHolder holder, int position) {
-        setViewInfo(holder);
-        holder.progress.stop();
-        int viewType = getItemViewType(position);
-        if (viewType == VIEW_TYPE_PHOTO) {
-            final UserPicture picture = mUserPictures.get(position);
-            holder.progress.start();
-            Picasso.with(mContext).load(picture.getPictureUrl()).fit().config(Bitmap.Config.RGB_565).into(holder.photo, new Callback() {
-                @Override
-                public void onSuccess() {
-                    holder.progress.stop();
-                }
+    public void onBindViewHolder(@NonNull PhotoViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && getItemViewType(position) == VIEW_TYPE_PHOTO && isPartialPayload(payloads)) {
+            UserPicture picture = mUserPictures.get(position);
+            if (payloads.contains(PAYLOAD_UPLOAD)) {
+                bindUploadProgress(holder, picture);
+            }
+            bindPhotoControls(holder, position, picture);
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
 
-                @Override
-                public void onError() {
-                    holder.progress.stop();
-                }
-            });
-            holder.photo.setBackground(null);
+    @Override
+    public Uri getThumbnailUri(int position) {
+        if (getItemViewType(position) != VIEW_TYPE_PHOTO) {
+            return null;
+        }
+        int bucket = ThumbnailCache.getSizeBucket(getTileSize(position));
+        return ThumbnailCache.getUri(mUserPictures.get(position).getPictureUrl(), bucket);
+    }
 
-            if (position == MAIN_PHOTO_POS) {
-                if (isBroAvatar) {
-                    holder.controlIcon.setRotation(45);
-                    holder.photo.setOnClickListener(new View.OnClickListener() {
-                        @Override
-                        public void onClick(View v) {
-                            holder.progress.start();
-                            mCallback.onAddPhoto();
-                        }
-                    });
-                } else {
-                    holder.controlIcon.setRotation(0);
-                    holder.photo.setOnClickListener(null);
-                    holder.controlIcon.setVisibility(getUserPicturesCount() > 1 ? View.VISIBLE : View.GONE);
-                    holder.controlIcon.setOnClickListener(new View.OnClickListener() {
-                        @Override
-                        public void onClick(View v) {
-                            mCallback.onRemovePhoto(picture);
-                        }
-                    });
-                }
-            } else {
-                holder.controlIcon.setRotation(0);
-                holder.controlIcon.setVisibility(View.VISIBLE);
-                holder.photo.setTag(picture);
-                holder.photo.setOnClickListener(new View.OnClickListener() {
-                    @Override
-                    public void onClick(View v) {
-                        mCallback.onRemovePhoto((UserPicture) v.getTag());
-                    }
-                });
-                holder.controlIcon.setOnClickListener(new View.OnClickListener() {
-                    @Override
-                    public void onClick(View v) {
-                        mCallback.onRemovePhoto(picture);
-                    }
-                });
+    /**
+     * Expected tile width, taken from the screen rather than laid out views
+     * so the same item always maps to the same thumbnail bucket
+     */
+    private int getTileSize(int position) {
+        int spanCount = mLayoutManager.getSpanCount();
+        int spanSize = mLayoutManager.getSpanSizeLookup().getSpanSize(position);
+        return mContext.getResources().getDisplayMetrics().widthPixels * spanSize / spanCount;
+    }
+
+    private boolean isPartialPayload(List<Object> payloads) {
+        // Indexed loop, an iterator would be the only allocation of a partial rebind
+        for (int i = 0; i < payloads.size(); i++) {
+            Object payload = payloads.get(i);
+            if (payload != PAYLOAD_POSITION && payload != PAYLOAD_UPLOAD) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            if (mPhotoDragController != null) {
-                holder.photo.setOnTouchListener(new LongPressDetector(mContext, holder, mPhotoDragController));
+    @Override
+    public void onBindViewHolder(PhotoViewHolder holder, int position) {
+        holder.releaseBitmap();
+        holder.progress.stop();
+        int viewType = getItemViewType(position);
+        if (viewType == VIEW_TYPE_PHOTO) {
+            UserPicture picture = mUserPictures.get(position);
+            holder.progress.start(picture.getPictureUrl());
+            bindThumbnailUri(holder, position, picture);
+            ThumbnailCache cache = ThumbnailCache.get();
+            boolean isResident = cache.isResident(holder.mCacheKey);
+            Metrics.get().recordBind(isResident);
+            if (!isResident) {
+                // Resident thumbnails are set right away, there is nothing to trace
+                cache.getTracer().begin(holder.mUri, position, mLayoutManager.getSpanSizeLookup().getSpanSize(position));
             }
-            mViewHolderMap.put(position, holder);
-            mPhotoDragController.updateViewHelper(position, holder);
+            if (position == MAIN_PHOTO_POS && !isResident) {
+                loadPreviewFirst(holder, picture);
+            } else {
+                Picasso.Priority priority = position == MAIN_PHOTO_POS ? Picasso.Priority.HIGH : Picasso.Priority.NORMAL;
+                loadPhoto(holder, priority, null);
+            }
+            holder.photo.setBackground(null);
+            bindPhotoControls(holder, position, picture);
         } else {
+            holder.mPicture = null;
             holder.controlIcon.setRotation(45);
             holder.photo.setImageDrawable(null);
             holder.photo.setOnTouchListener(null);
-            holder.photo.setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View v) {
-                    holder.progress.start();
-                    mCallback.onAddPhoto();
-                }
-            });
+            holder.photo.setOnClickListener(holder.mAddPhotoListener);
             holder.photo.setBackgroundResource(R.drawable.bg_item_photo);
-            holder.controlIcon.setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View v) {
-                    holder.progress.start();
-                    mCallback.onAddPhoto();
-                }
-            });
+            holder.controlIcon.setOnClickListener(holder.mAddPhotoListener);
         }
     }
 
-    private void setViewInfo(final PhotoViewHolder holder) {
-        if (mPhotoDragController.isViewInfoNeeded(holder.getAdapterPosition())) {
-            final View view = holder.getItemView();
-            view.post(new Runnable() {
-                @Override
-                public void run() {
-                    mPhotoDragController.setViewInfo(holder.getItemPosition(), holder.getItemView());
-                }
-            });
+    /**
+     * Keeps thumbnail uri and its cache key of the previous binding if the picture and tile size are the same,
+     * which is the case for most rebinds
+     */
+    private void bindThumbnailUri(PhotoViewHolder holder, int position, UserPicture picture) {
+        String url = picture.getPictureUrl();
+        int bucket = ThumbnailCache.getSizeBucket(getTileSize(position));
+        if (holder.mUri == null || holder.mUriBucket != bucket || !url.equals(holder.mUriUrl)) {
+            holder.mUri = ThumbnailCache.getUri(url, bucket);
+            holder.mUriUrl = url;
+            holder.mUriBucket = bucket;
+            holder.mCacheKey = ThumbnailCache.getCacheKey(holder.mUri);
+        }
+    }
+
+    /**
+     * Loads thumbnail of the holder's uri, the holder's callback reports the result
+     */
+    private void loadPhoto(PhotoViewHolder holder, Picasso.Priority priority, Drawable placeholder) {
+        holder.mLoadStartNanos = System.nanoTime();
+        RequestCreator request = Picasso.with(mContext).load(holder.mUri).config(Bitmap.Config.RGB_565).priority(priority);
+        if (placeholder != null) {
+            request.placeholder(placeholder).noFade();
+        }
+        request.into(holder.photo, holder.mLoadCallback);
+    }
+
+    /**
+     * Thumbnail is loaded, progress keeps following the upload of the picture if there is one
+     */
+    private void stopProgress(PhotoViewHolder holder) {
+        int position = holder.getAdapterPosition();
+        if (position != RecyclerView.NO_POSITION && getItemViewType(position) == VIEW_TYPE_PHOTO) {
+            bindUploadProgress(holder, mUserPictures.get(position));
+        } else {
+            holder.progress.stop();
+        }
+    }
+
+    private void bindUploadProgress(PhotoViewHolder holder, UserPicture picture) {
+        if (mUploadingIds.contains(picture.getId())) {
+            holder.progress.start(picture.getPictureUrl());
+        } else {
+            holder.progress.stop();
+        }
+    }
+
+    /**
+     * Main photo shows the single span tile thumbnail first, usually it's already cached
+     * since the picture was a tile before, then swaps in the full span thumbnail once it's ready
+     */
+    private void loadPreviewFirst(PhotoViewHolder holder, UserPicture picture) {
+        int previewBucket = ThumbnailCache.getSizeBucket(getTileSize(MAIN_PHOTO_POS + 1));
+        Uri previewUri = ThumbnailCache.getUri(picture.getPictureUrl(), previewBucket);
+        Picasso.with(mContext).load(previewUri).config(Bitmap.Config.RGB_565).priority(Picasso.Priority.HIGH)
+                .into(holder.photo, holder.mPreviewCallback);
+    }
+
+    /**
+     * Binds state which depends on the item position only: controls of the main photo differ from others
+     */
+    private void bindPhotoControls(PhotoViewHolder holder, int position, UserPicture picture) {
+        holder.mPicture = picture;
+        if (position == MAIN_PHOTO_POS) {
+            if (isBroAvatar) {
+                holder.controlIcon.setRotation(45);
+                holder.photo.setOnClickListener(holder.mAddPhotoListener);
+            } else {
+                holder.controlIcon.setRotation(0);
+                holder.photo.setOnClickListener(null);
+                holder.controlIcon.setVisibility(getUserPicturesCount() > 1 ? View.VISIBLE : View.GONE);
+                holder.controlIcon.setOnClickListener(holder.mRemovePhotoListener);
+            }
+        } else {
+            holder.controlIcon.setRotation(0);
+            holder.controlIcon.setVisibility(View.VISIBLE);
+            holder.photo.setOnClickListener(holder.mRemovePhotoListener);
+            holder.controlIcon.setOnClickListener(holder.mRemovePhotoListener);
+        }
+
+        if (mPhotoDragController != null) {
+            if (holder.mLongPressDetector == null) {
+                holder.mLongPressDetector = new LongPressDetector(mContext, holder, mPhotoDragController);
+            }
+            holder.photo.setOnTouchListener(holder.mLongPressDetector);
         }
+        mViewHolders.put(picture.getId(), holder);
+        mPhotoDragController.updateViewHelper(holder);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull PhotoViewHolder holder) {
+        Picasso.with(mContext).cancelRequest(holder.photo);
+        holder.progress.stop();
+        holder.photo.setImageDrawable(null);
+        holder.releaseBitmap();
+        holder.mPicture = null;
+        if (mViewHolders.get(holder.getItemId()) == holder) {
+            mViewHolders.remove(holder.getItemId());
+        }
+        mPhotoDragController.removeViewHelper(holder);
     }
 
     @Override
@@ -188,13 +365,33 @@ public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.PhotoViewH
         return mUserPictures.size();
     }
 
+    /**
+     * @return true while fewer than {@link #COUNT} photos of the user are shown, the placeholder isn't one of them
+     */
+    public boolean canAddPhoto() {
+        return (isBroAvatar ? 0 : getUserPicturesCount()) < COUNT;
+    }
+
     public void addPhoto(UserPicture picture) {
         if (isBroAvatar) {
             mUserPictures.remove(0);
             isBroAvatar = false;
+            notifyItemRemoved(0);
         }
         mUserPictures.add(picture);
-        notifyDataSetChanged();
+        notifyItemInserted(mUserPictures.size() - 1);
+        notifyItemChanged(MAIN_PHOTO_POS, PAYLOAD_POSITION);
+    }
+
+    /**
+     * Marks the picture as being uploaded, its tile shows upload progress meanwhile
+     */
+    public void setUploading(UserPicture picture, boolean isUploading) {
+        boolean isChanged = isUploading ? mUploadingIds.add(picture.getId()) : mUploadingIds.remove(picture.getId());
+        int position = mUserPictures.indexOf(picture);
+        if (isChanged && position >= 0) {
+            notifyItemChanged(position, PAYLOAD_UPLOAD);
+        }
     }
 
     @Override
@@ -206,67 +403,42 @@ public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.PhotoViewH
         int fromPosition = from.getItemPosition();
         int toPosition = to.getItemPosition();
         if (onCanDropOver(fromPosition, toPosition)) {
-            mUserPictures.add(toPosition, mUserPictures.remove(fromPosition));
-            if (mAnimatedView != null && fromPosition * toPosition == 0) {
+            // Holder shown in the first tile slot, taken before the move changes what's there
+            PhotoViewHolder firstTile = getUserPicturesCount() > 1 ? mViewHolders.get(mUserPictures.get(1).getId()) : null;
+            boolean isRebalanced = mUserPictures.move(fromPosition, toPosition);
+            if (mSwapAnimator != null && fromPosition * toPosition == 0 && firstTile != null) {
                 if (toPosition == 0) {
-                    from = mViewHolderMap.get(1);
+                    from = firstTile;
                 } else if (fromPosition == 0) {
-                    to = mViewHolderMap.get(1);
+                    to = firstTile;
                 }
                 animate(from, to);
             }
-            notifyDataSetChanged();
-
-            from.getItemView().postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    mPhotoDragController.unblockController();
-                }
-            }, ANIM_DURATION);
-            mCallback.onOrderChanged(mUserPictures);
+            notifyItemMoved(fromPosition, toPosition);
+            // Items in between shifted by one, they only need position dependent state rebound
+            notifyItemRangeChanged(Math.min(fromPosition, toPosition), Math.abs(toPosition - fromPosition) + 1, PAYLOAD_POSITION);
+
+            // Next drop waits until the move is laid out and its item animations are done
+            isWaitingForMove = true;
+            if (isRebalanced) {
+                mCallback.onOrderRebalanced();
+            }
+            mCallback.onOrderChanged(mUserPictures.get(toPosition), fromPosition, toPosition);
             return true;
         }
         return false;
     }
 
-    private void animate(ItemViewHelper from, final ItemViewHelper to) {
+    private void animate(ItemViewHelper from, ItemViewHelper to) {
         View fromView = from.getItemView();
         View toView = to.getItemView();
 
-        mAnimatedView.setBackground(to.getItemDrawable());
+        float width = shouldScale((float) fromView.getWidth() / toView.getWidth()) ? fromView.getWidth() : toView.getWidth();
+        float height = shouldScale((float) fromView.getHeight() / toView.getHeight()) ? fromView.getHeight() : toView.getHeight();
 
-        mAnimatedView.setScaleX(1);
-        mAnimatedView.setScaleY(1);
-
-        int widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(toView.getWidth(), View.MeasureSpec.EXACTLY);
-        int heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(toView.getHeight(), View.MeasureSpec.EXACTLY);
-        mAnimatedView.setLayoutParams(new FrameLayout.LayoutParams(toView.getWidth(), toView.getHeight()));
-        mAnimatedView.measure(widthMeasureSpec, heightMeasureSpec);
-
-        mAnimatedView.setX(toView.getX());
-        mAnimatedView.setY(toView.getY());
-
-        float scaleX = (float) fromView.getWidth() / (float) toView.getWidth();
-        float scaleY = (float) fromView.getHeight() / (float) toView.getHeight();
-
-        mAnimatedView.setVisibility(View.VISIBLE);
-        to.getItemView().setVisibility(View.INVISIBLE);
-
-        scaleX = shouldScale(scaleX) ? scaleX : 1;
-        scaleY = shouldScale(scaleY) ? scaleY : 1;
-
-        float toX = fromView.getX() - toView.getX() - toView.getWidth() * (1 - scaleX) / 2;
-        float toY = fromView.getY() - toView.getY() - toView.getHeight() * (1 - scaleY) / 2;
-
-        mAnimatedView.animate().scaleX(scaleX).scaleY(scaleY)
-                .translationXBy(toX).translationYBy(toY)
-                .setDuration(ANIM_DURATION).withEndAction(new Runnable() {
-            @Override
-            public void run() {
-                to.getItemView().setVisibility(View.VISIBLE);
-                mAnimatedView.setVisibility(View.INVISIBLE);
-            }
-        });
+        // The list fills the overlay container, so item positions are container coordinates
+        mSwapAnimator.animate(to.getItemDrawable(), toView, toView.getX(), toView.getY(), toView.getWidth(), toView.getHeight(),
+                fromView.getX(), fromView.getY(), width, height, ANIM_DURATION);
     }
 
     private boolean shouldScale(float scale) {
@@ -275,7 +447,9 @@ public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.PhotoViewH
 
     @Override
     public void onDragFinished() {
-        notifyDataSetChanged();
+        // All moves of the gesture are written at once
+        mUserPictures.flush();
+        mCallback.onOrderCommitted();
     }
 
     public boolean onCanDropOver(int fromPosition, int toPosition) {
@@ -285,16 +459,61 @@ public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.PhotoViewH
     @Override
     public void setPhotoDragController(PhotoDragController listener, View animatedView) {
         mPhotoDragController = listener;
-        mAnimatedView = animatedView;
+        mSwapAnimator = new TileSwapAnimator((ImageView) animatedView);
+    }
+
+    private void unblockController() {
+        if (mPhotoDragController != null) {
+            mPhotoDragController.unblockController();
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+        recyclerView.getViewTreeObserver().addOnPreDrawListener(mPreDrawListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.getViewTreeObserver().removeOnPreDrawListener(mPreDrawListener);
+        mRecyclerView = null;
     }
 
+    /**
+     * Removes the picture from the gallery right away, it's looked up by id
+     */
     public void removeUserPicture(UserPicture picture) {
         int position = mUserPictures.indexOf(picture);
         if (position >= 0 && position < mUserPictures.size()) {
             mUserPictures.remove(position);
-            mViewHolderMap.remove(position);
-            mPhotoDragController.removeViewHelper(position);
-            notifyDataSetChanged();
+            // Holder of the removed picture leaves id indexes once it's recycled,
+            // positions after the removed one get rebound
+            notifyItemRemoved(position);
+            notifyItemRangeChanged(position, mUserPictures.size() - position, PAYLOAD_POSITION);
+            if (position != MAIN_PHOTO_POS && !mUserPictures.isEmpty()) {
+                notifyItemChanged(MAIN_PHOTO_POS, PAYLOAD_POSITION);
+            }
+        }
+    }
+
+    /**
+     * Puts back a removed picture at its place, it gets a new order key there
+     */
+    public void restoreUserPicture(UserPicture picture) {
+        boolean isRebalanced = mUserPictures.restore(picture);
+        int position = mUserPictures.indexOf(picture);
+        if (position < 0) {
+            return;
+        }
+        if (isRebalanced) {
+            mCallback.onOrderRebalanced();
+        }
+        notifyItemInserted(position);
+        // Shifted pictures register their holders at new positions on rebind
+        notifyItemRangeChanged(position + 1, mUserPictures.size() - position - 1, PAYLOAD_POSITION);
+        if (position != MAIN_PHOTO_POS) {
+            notifyItemChanged(MAIN_PHOTO_POS, PAYLOAD_POSITION);
         }
     }
 
@@ -302,6 +521,22 @@ public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.PhotoViewH
         private ImageView photo;
         private View controlIcon;
         private ProgressVector progress;
+        private Bitmap mBitmap;
+
+        // Current binding, null for the add photo stub
+        private UserPicture mPicture;
+        // Thumbnail of the current binding, kept while the picture and tile size stay the same
+        private Uri mUri;
+        private String mUriUrl;
+        private int mUriBucket;
+        private String mCacheKey;
+        private long mLoadStartNanos;
+
+        private View.OnClickListener mAddPhotoListener;
+        private View.OnClickListener mRemovePhotoListener;
+        private Callback mLoadCallback;
+        private Callback mPreviewCallback;
+        private LongPressDetector mLongPressDetector;
 
         public PhotoViewHolder(View itemView) {
             super(itemView);
@@ -315,6 +550,25 @@ public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.PhotoViewH
             return photo.getDrawable();
         }
 
+        /**
+         * Keeps displayed bitmap out of the bitmap pool while it's shown by this holder
+         */
+        private void acquireBitmap() {
+            releaseBitmap();
+            Drawable drawable = photo.getDrawable();
+            if (drawable instanceof BitmapDrawable) {
+                mBitmap = ((BitmapDrawable) drawable).getBitmap();
+                ThumbnailCache.get().getMemoryCache().acquire(mBitmap);
+            }
+        }
+
+        private void releaseBitmap() {
+            if (mBitmap != null) {
+                ThumbnailCache.get().getMemoryCache().release(mBitmap);
+                mBitmap = null;
+            }
+        }
+
         @Override
         public View getItemView() {
             return itemView;
@@ -349,7 +603,20 @@ public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.PhotoViewH
 
         void onAddPhoto();
 
-        void onOrderChanged(List<UserPicture> pictures);
+        /**
+         * Called once per drop, the picture moved from one position to another
+         */
+        void onOrderChanged(UserPicture picture, int fromPosition, int toPosition);
+
+        /**
+         * Order keys of all pictures were reassigned
+         */
+        void onOrderRebalanced();
+
+        /**
+         * Drag gesture is finished, no more order changes follow it
+         */
+        void onOrderCommitted();
 
         void onRemovePhoto(UserPicture picture);
 
@@ -0,0 +1,89 @@
+package com.voltazor.myapplication;
+
+import java.util.List;
+
+/**
+ * Local storage of user pictures ordered by {@link UserPicture#getOrder() order key},
+ * read by {@link PagedPictureList} in windows. Keys of shown pictures are unique, so a window is found by the key
+ * of its neighbour. Removed pictures stay until purged, so an undo puts them back at their place.
+ * Reads may come from a background thread while the UI thread mutates the store.
+ */
+public interface PictureStore {
+
+    int getCount();
+
+    /**
+     * @return pictures at positions {@code [offset, offset + limit)} in display order,
+     * fewer when the end of the gallery is reached
+     */
+    List<UserPicture> load(int offset, int limit);
+
+    /**
+     * @param afterKey key of the picture before the window, {@link OrderKeys#NO_KEY} for the start of the gallery
+     * @return up to {@code limit} pictures following the key in display order
+     */
+    List<UserPicture> loadAfter(long afterKey, int limit);
+
+    /**
+     * @param beforeKey key of the picture after the window
+     * @return up to {@code limit} pictures preceding the key in display order
+     */
+    List<UserPicture> loadBefore(long beforeKey, int limit);
+
+    /**
+     * @return position of the picture with the given id or -1
+     */
+    int indexOf(long id);
+
+    /**
+     * Appends the picture, it gets a key after the last one
+     */
+    void add(UserPicture picture);
+
+    /**
+     * Leaves the picture out of reads, it keeps its place among other pictures, rebalancing included,
+     * until it's {@link #restore(UserPicture) restored} or {@link #purge(List) purged}
+     */
+    void remove(UserPicture picture);
+
+    /**
+     * @return position a removed picture takes once restored, -1 if it isn't removed
+     */
+    int indexOfRemoved(long id);
+
+    /**
+     * Brings a removed picture back with the order key it holds now, the key has to fit its place
+     */
+    void restore(UserPicture picture);
+
+    /**
+     * @return removed pictures which weren't purged yet
+     */
+    List<UserPicture> loadRemoved();
+
+    /**
+     * Forgets removed pictures for good, e.g. once the backend confirmed their deletion
+     */
+    void purge(List<UserPicture> pictures);
+
+    /**
+     * Writes the order key of a single picture, it may be deferred until {@link #flush()}
+     */
+    void updateOrder(UserPicture picture);
+
+    /**
+     * Writes the {@link UserPicture#getUploadUrl() upload url} of a single picture
+     */
+    void updateUploadUrl(UserPicture picture);
+
+    /**
+     * Reassigns evenly spaced keys to all pictures, keeping the order
+     */
+    void rebalance();
+
+    /**
+     * Persists changes the store may have deferred
+     */
+    void flush();
+
+}
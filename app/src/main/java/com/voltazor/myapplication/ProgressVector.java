@@ -1,34 +1,125 @@
 package com.voltazor.myapplication;
 
 import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
 import android.util.AttributeSet;
-import android.widget.ImageView;
+import android.view.View;
 
 import androidx.appcompat.widget.AppCompatImageView;
+import androidx.core.content.ContextCompat;
+import androidx.core.view.ViewCompat;
 
 /**
  * Created by voltazor on 22/03/16.
+ * <p>
+ * Circular progress of a photo download. Spins while the size of the download is unknown,
+ * fills up with real byte progress once the source reports it.
  */
-public class ProgressVector extends AppCompatImageView {
+public class ProgressVector extends AppCompatImageView implements SourceFetcher.ProgressListener {
+
+    private static final float INDETERMINATE_SWEEP = 90f;
+    private static final float SPIN_STEP = 8f;
+
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF mBounds = new RectF();
+
+    private String mUrl;
+    private volatile float mProgress = -1;
+    private float mStartAngle;
+
+    private final Runnable mInvalidate = new Runnable() {
+        @Override
+        public void run() {
+            invalidate();
+        }
+    };
 
     public ProgressVector(Context context) {
         super(context);
+        init(context);
     }
 
     public ProgressVector(Context context, AttributeSet attrs) {
         super(context, attrs);
+        init(context);
     }
 
     public ProgressVector(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
+        init(context);
+    }
+
+    private void init(Context context) {
+        mPaint.setStyle(Paint.Style.STROKE);
+        mPaint.setStrokeCap(Paint.Cap.ROUND);
+        mPaint.setStrokeWidth(context.getResources().getDisplayMetrics().density * 3);
+        mPaint.setColor(ContextCompat.getColor(context, R.color.primary));
     }
 
     public void start() {
+        mProgress = -1;
+        setVisibility(View.VISIBLE);
+        invalidate();
+    }
 
+    /**
+     * Shows progress and follows byte progress of the given source download
+     */
+    public void start(String url) {
+        stopTracking();
+        start();
+        mUrl = url;
+        if (url != null) {
+            ThumbnailCache.get().addProgressListener(url, this);
+        }
     }
 
     public void stop() {
+        stopTracking();
+        setVisibility(View.GONE);
+    }
+
+    private void stopTracking() {
+        if (mUrl != null) {
+            ThumbnailCache.get().removeProgressListener(mUrl, this);
+            mUrl = null;
+        }
+    }
+
+    /**
+     * Called from the download thread
+     */
+    @Override
+    public void onProgress(long bytesRead, long contentLength) {
+        mProgress = contentLength > 0 ? Math.min(1f, (float) bytesRead / contentLength) : -1;
+        ViewCompat.postOnAnimation(this, mInvalidate);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (getVisibility() != View.VISIBLE) {
+            return;
+        }
+        float inset = mPaint.getStrokeWidth() / 2f;
+        mBounds.set(getPaddingLeft() + inset, getPaddingTop() + inset,
+                getWidth() - getPaddingRight() - inset, getHeight() - getPaddingBottom() - inset);
+        float progress = mProgress;
+        if (progress < 0) {
+            canvas.drawArc(mBounds, mStartAngle, INDETERMINATE_SWEEP, false, mPaint);
+            mStartAngle = (mStartAngle + SPIN_STEP) % 360;
+            ViewCompat.postInvalidateOnAnimation(this);
+        } else {
+            canvas.drawArc(mBounds, -90, 360 * progress, false, mPaint);
+        }
+    }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        stopTracking();
+        super.onDetachedFromWindow();
     }
 
 }
@@ -0,0 +1,304 @@
+package com.voltazor.myapplication;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import com.squareup.picasso.Downloader;
+import com.squareup.picasso.Picasso;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads full size sources for {@link ThumbnailRequestHandler}, local file sources are read directly.
+ * Concurrent requests for the same url share one download, e.g. main photo and tile
+ * buckets of the same picture, and every host gets a bounded number of connections,
+ * handed out to queued downloads by request priority.
+ */
+class SourceFetcher {
+
+    private static final int MAX_REQUESTS_PER_HOST = 2;
+
+    private final Downloader mDownloader;
+    private final Map<String, HostGate> mHostGates = new HashMap<>();
+    private final Map<String, InFlight> mInFlight = new HashMap<>();
+    private final Map<String, List<ProgressListener>> mProgressListeners = new HashMap<>();
+
+    SourceFetcher(@NonNull Downloader downloader) {
+        mDownloader = downloader;
+    }
+
+    void addProgressListener(@NonNull String url, @NonNull ProgressListener listener) {
+        synchronized (mProgressListeners) {
+            List<ProgressListener> listeners = mProgressListeners.get(url);
+            if (listeners == null) {
+                listeners = new ArrayList<>(1);
+                mProgressListeners.put(url, listeners);
+            }
+            if (!listeners.contains(listener)) {
+                listeners.add(listener);
+            }
+        }
+    }
+
+    void removeProgressListener(@NonNull String url, @NonNull ProgressListener listener) {
+        synchronized (mProgressListeners) {
+            List<ProgressListener> listeners = mProgressListeners.get(url);
+            if (listeners != null && listeners.remove(listener) && listeners.isEmpty()) {
+                mProgressListeners.remove(url);
+            }
+        }
+    }
+
+    /**
+     * Blocks until the source is downloaded, a thread interrupted by request
+     * cancellation stops waiting with {@link InterruptedIOException}.
+     * Network failures of a shared download are reported to every request waiting for it,
+     * a cancelled owner hands the download over to one of them instead.
+     *
+     * @param priority priority of the request, the download of a shared source runs at the highest one
+     */
+    byte[] fetch(@NonNull String url, int networkPolicy, @NonNull Picasso.Priority priority) throws IOException {
+        while (true) {
+            InFlight inFlight;
+            boolean owner = false;
+            synchronized (mInFlight) {
+                inFlight = mInFlight.get(url);
+                if (inFlight == null) {
+                    inFlight = new InFlight(priority);
+                    mInFlight.put(url, inFlight);
+                    owner = true;
+                } else {
+                    inFlight.ticket.raise(priority);
+                }
+            }
+            if (owner) {
+                try {
+                    inFlight.data = download(url, networkPolicy, inFlight.ticket);
+                    return inFlight.data;
+                } catch (IOException e) {
+                    if (isCancellation(e)) {
+                        // Cancellation of this request only, waiters still want the source
+                        inFlight.isAbandoned = true;
+                    } else {
+                        inFlight.error = e;
+                    }
+                    throw e;
+                } catch (RuntimeException e) {
+                    inFlight.error = new IOException("Unable to download " + url, e);
+                    throw e;
+                } finally {
+                    synchronized (mInFlight) {
+                        mInFlight.remove(url);
+                    }
+                    inFlight.done.countDown();
+                }
+            }
+            try {
+                inFlight.done.await();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Cancelled while waiting for " + url);
+            }
+            if (inFlight.error != null) {
+                throw inFlight.error;
+            }
+            if (!inFlight.isAbandoned) {
+                return inFlight.data;
+            }
+            // Owner was cancelled, take the download over or join whoever did
+        }
+    }
+
+    /**
+     * Picasso cancels a request by interrupting its thread, socket timeouts are network failures
+     */
+    private static boolean isCancellation(IOException e) {
+        return e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException);
+    }
+
+    private byte[] download(String url, int networkPolicy, Ticket ticket) throws IOException {
+        Uri uri = Uri.parse(url);
+        if (ContentResolver.SCHEME_FILE.equals(uri.getScheme())) {
+            // Local pictures, e.g. added photos waiting for upload
+            File file = new File(uri.getPath());
+            return readFully(url, new FileInputStream(file), file.length());
+        }
+        HostGate gate = getHostGate(uri.getHost());
+        try {
+            gate.acquire(ticket);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Cancelled while queued for " + uri.getHost());
+        }
+        try {
+            Downloader.Response response = mDownloader.load(uri, networkPolicy);
+            InputStream in = response != null ? response.getInputStream() : null;
+            if (in == null) {
+                throw new IOException("Empty response for " + url);
+            }
+            return readFully(url, in, response.getContentLength());
+        } finally {
+            gate.release();
+        }
+    }
+
+    private HostGate getHostGate(String host) {
+        String key = host != null ? host : "";
+        synchronized (mHostGates) {
+            HostGate gate = mHostGates.get(key);
+            if (gate == null) {
+                gate = new HostGate();
+                mHostGates.put(key, gate);
+            }
+            return gate;
+        }
+    }
+
+    private byte[] readFully(String url, InputStream in, long contentLength) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(contentLength > 0 ? (int) contentLength : 8192);
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                total += read;
+                notifyProgress(url, total, contentLength);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    void notifyProgress(String url, long bytesRead, long contentLength) {
+        synchronized (mProgressListeners) {
+            List<ProgressListener> listeners = mProgressListeners.get(url);
+            if (listeners != null) {
+                for (int i = 0; i < listeners.size(); i++) {
+                    listeners.get(i).onProgress(bytesRead, contentLength);
+                }
+            }
+        }
+    }
+
+    interface ProgressListener {
+
+        /**
+         * Called on the download or upload thread
+         *
+         * @param contentLength total size or -1 when server doesn't report it
+         */
+        void onProgress(long bytesRead, long contentLength);
+
+    }
+
+    private static class InFlight {
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final Ticket ticket;
+        volatile byte[] data;
+        volatile IOException error;
+        // Owner was cancelled before the download finished, neither data nor error is set
+        volatile boolean isAbandoned;
+
+        InFlight(Picasso.Priority priority) {
+            ticket = new Ticket(priority);
+        }
+
+    }
+
+    /**
+     * Place of a download in the queue of its host
+     */
+    private static class Ticket {
+
+        private static final AtomicLong sSequence = new AtomicLong();
+
+        final long sequence = sSequence.getAndIncrement();
+        volatile int priority;
+        volatile HostGate gate;
+
+        Ticket(Picasso.Priority priority) {
+            this.priority = priority.ordinal();
+        }
+
+        /**
+         * A request of higher priority joined the download, it moves ahead of the host queue
+         */
+        void raise(Picasso.Priority priority) {
+            if (priority.ordinal() > this.priority) {
+                this.priority = priority.ordinal();
+                HostGate gate = this.gate;
+                if (gate != null) {
+                    gate.onChanged();
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Bounds connections to a host, queued downloads get a connection by priority, then in order of arrival.
+     * Picasso's executor orders requests by priority too, but only until they block here
+     */
+    private static class HostGate {
+
+        private final List<Ticket> mQueue = new ArrayList<>();
+        private int mRunning;
+
+        synchronized void acquire(Ticket ticket) throws InterruptedException {
+            mQueue.add(ticket);
+            ticket.gate = this;
+            try {
+                while (mRunning >= MAX_REQUESTS_PER_HOST || next() != ticket) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                mQueue.remove(ticket);
+                ticket.gate = null;
+                // This ticket might have been the next one
+                notifyAll();
+                throw e;
+            }
+            mQueue.remove(ticket);
+            ticket.gate = null;
+            mRunning++;
+        }
+
+        synchronized void release() {
+            mRunning--;
+            notifyAll();
+        }
+
+        synchronized void onChanged() {
+            notifyAll();
+        }
+
+        private Ticket next() {
+            Ticket next = null;
+            for (int i = 0; i < mQueue.size(); i++) {
+                Ticket ticket = mQueue.get(i);
+                if (next == null || ticket.priority > next.priority
+                        || ticket.priority == next.priority && ticket.sequence < next.sequence) {
+                    next = ticket;
+                }
+            }
+            return next;
+        }
+
+    }
+
+}
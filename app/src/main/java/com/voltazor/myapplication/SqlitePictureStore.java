@@ -0,0 +1,325 @@
+package com.voltazor.myapplication;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link PictureStore} persisted in SQLite, so the gallery survives restarts without refetching.
+ * Sort order column holds the sparse {@link OrderKeys order key} of the picture and is indexed,
+ * so a page following or preceding a known key is a range query starting right at that key.
+ * Methods are synchronized, pages are read on a background thread.
+ * <p>
+ * Order updates are batched in memory and written in one transaction on {@link #flush()},
+ * before any read and before other mutations. A move rewrites the moved row only.
+ * Removal only flags a row, the row is deleted once it's purged.
+ */
+public class SqlitePictureStore extends SQLiteOpenHelper implements PictureStore {
+
+    private static final String DATABASE_NAME = "pictures.db";
+    private static final int DATABASE_VERSION = 4;
+
+    private static final String TABLE = "pictures";
+    private static final String COLUMN_ID = "_id";
+    private static final String COLUMN_ORDER = "sort_order";
+    private static final String COLUMN_URL = "url";
+    private static final String COLUMN_UPLOAD_URL = "upload_url";
+    private static final String COLUMN_REMOVED = "removed";
+
+    private static final String SHOWN = COLUMN_REMOVED + " = 0";
+
+    private final List<UserPicture> mPendingOrders = new ArrayList<>();
+    private int mCount = -1;
+
+    public SqlitePictureStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COLUMN_ORDER + " INTEGER NOT NULL, "
+                + COLUMN_URL + " TEXT, "
+                + COLUMN_UPLOAD_URL + " TEXT, "
+                + COLUMN_REMOVED + " INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX " + TABLE + "_" + COLUMN_ORDER + " ON " + TABLE + " (" + COLUMN_ORDER + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // Order used to be the position, spread it into sparse keys
+            db.execSQL("UPDATE " + TABLE + " SET " + COLUMN_ORDER + " = (" + COLUMN_ORDER + " + 1) * " + OrderKeys.GAP);
+        }
+        if (oldVersion < 3) {
+            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN " + COLUMN_UPLOAD_URL + " TEXT");
+        }
+        if (oldVersion < 4) {
+            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN " + COLUMN_REMOVED + " INTEGER NOT NULL DEFAULT 0");
+        }
+    }
+
+    @Override
+    public synchronized int getCount() {
+        if (mCount < 0) {
+            mCount = (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE, SHOWN);
+        }
+        return mCount;
+    }
+
+    /**
+     * Walks the index from its start, prefer {@link #loadAfter(long, int)} when a neighbour key is known
+     */
+    @Override
+    public synchronized List<UserPicture> load(int offset, int limit) {
+        flush();
+        return query(SHOWN, null, COLUMN_ORDER, offset + "," + limit);
+    }
+
+    @Override
+    public synchronized List<UserPicture> loadAfter(long afterKey, int limit) {
+        flush();
+        if (afterKey == OrderKeys.NO_KEY) {
+            return query(SHOWN, null, COLUMN_ORDER, String.valueOf(limit));
+        }
+        return query(SHOWN + " AND " + COLUMN_ORDER + " > ?", new String[]{String.valueOf(afterKey)}, COLUMN_ORDER, String.valueOf(limit));
+    }
+
+    @Override
+    public synchronized List<UserPicture> loadBefore(long beforeKey, int limit) {
+        flush();
+        List<UserPicture> pictures = query(SHOWN + " AND " + COLUMN_ORDER + " < ?", new String[]{String.valueOf(beforeKey)},
+                COLUMN_ORDER + " DESC", String.valueOf(limit));
+        Collections.reverse(pictures);
+        return pictures;
+    }
+
+    private List<UserPicture> query(String selection, String[] selectionArgs, String orderBy, String limit) {
+        Cursor cursor = getReadableDatabase().query(TABLE, new String[]{COLUMN_ID, COLUMN_ORDER, COLUMN_URL, COLUMN_UPLOAD_URL},
+                selection, selectionArgs, null, null, orderBy, limit);
+        try {
+            List<UserPicture> pictures = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                UserPicture picture = new UserPicture();
+                picture.setId(cursor.getLong(0));
+                picture.setOrder(cursor.getLong(1));
+                picture.setPictureUrl(cursor.getString(2));
+                picture.setUploadUrl(cursor.getString(3));
+                pictures.add(picture);
+            }
+            return pictures;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public synchronized int indexOf(long id) {
+        flush();
+        try {
+            long order = DatabaseUtils.longForQuery(getReadableDatabase(),
+                    "SELECT " + COLUMN_ORDER + " FROM " + TABLE + " WHERE " + COLUMN_ID + " = ? AND " + SHOWN,
+                    new String[]{String.valueOf(id)});
+            return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE,
+                    SHOWN + " AND " + COLUMN_ORDER + " < ?", new String[]{String.valueOf(order)});
+        } catch (SQLiteDoneException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * A removed picture goes after a shown one with the same key, the same way {@link #rebalance()} orders them
+     */
+    @Override
+    public synchronized int indexOfRemoved(long id) {
+        flush();
+        try {
+            long order = DatabaseUtils.longForQuery(getReadableDatabase(),
+                    "SELECT " + COLUMN_ORDER + " FROM " + TABLE + " WHERE " + COLUMN_ID + " = ? AND NOT " + SHOWN,
+                    new String[]{String.valueOf(id)});
+            return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE,
+                    SHOWN + " AND " + COLUMN_ORDER + " <= ?", new String[]{String.valueOf(order)});
+        } catch (SQLiteDoneException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Appends the picture, id is assigned by the store when the picture has none
+     */
+    @Override
+    public synchronized void add(UserPicture picture) {
+        addAll(Collections.singletonList(picture));
+    }
+
+    /**
+     * Appends pictures in a single transaction
+     */
+    public synchronized void addAll(List<UserPicture> pictures) {
+        flush();
+        SQLiteDatabase db = getWritableDatabase();
+        long last = getLastOrder(db);
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (UserPicture picture : pictures) {
+                last = OrderKeys.between(last, OrderKeys.NO_KEY);
+                values.clear();
+                if (picture.getId() != 0) {
+                    values.put(COLUMN_ID, picture.getId());
+                }
+                values.put(COLUMN_ORDER, last);
+                values.put(COLUMN_URL, picture.getPictureUrl());
+                values.put(COLUMN_UPLOAD_URL, picture.getUploadUrl());
+                picture.setId(db.insertOrThrow(TABLE, null, values));
+                picture.setOrder(last);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        mCount = getCount() + pictures.size();
+    }
+
+    private long getLastOrder(SQLiteDatabase db) {
+        Cursor cursor = db.query(TABLE, new String[]{COLUMN_ORDER}, null, null, null, null, COLUMN_ORDER + " DESC", "1");
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : OrderKeys.NO_KEY;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Only flags the row, it's deleted by {@link #purge(List)}
+     */
+    @Override
+    public synchronized void remove(UserPicture picture) {
+        flush();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_REMOVED, 1);
+        int count = getWritableDatabase().update(TABLE, values, COLUMN_ID + " = ? AND " + SHOWN,
+                new String[]{String.valueOf(picture.getId())});
+        mCount = getCount() - count;
+    }
+
+    @Override
+    public synchronized void restore(UserPicture picture) {
+        flush();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_REMOVED, 0);
+        values.put(COLUMN_ORDER, picture.getOrder());
+        int count = getWritableDatabase().update(TABLE, values, COLUMN_ID + " = ? AND NOT " + SHOWN,
+                new String[]{String.valueOf(picture.getId())});
+        mCount = getCount() + count;
+    }
+
+    @Override
+    public synchronized List<UserPicture> loadRemoved() {
+        flush();
+        return query("NOT " + SHOWN, null, COLUMN_ORDER, null);
+    }
+
+    /**
+     * Deletes removed rows in a single transaction, pictures restored meanwhile are kept
+     */
+    @Override
+    public synchronized void purge(List<UserPicture> pictures) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement delete = db.compileStatement(
+                "DELETE FROM " + TABLE + " WHERE " + COLUMN_ID + " = ? AND NOT " + SHOWN);
+        db.beginTransaction();
+        try {
+            for (UserPicture picture : pictures) {
+                delete.bindLong(1, picture.getId());
+                delete.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            delete.close();
+        }
+    }
+
+    @Override
+    public synchronized void updateOrder(UserPicture picture) {
+        mPendingOrders.add(picture);
+    }
+
+    @Override
+    public synchronized void updateUploadUrl(UserPicture picture) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_UPLOAD_URL, picture.getUploadUrl());
+        getWritableDatabase().update(TABLE, values, COLUMN_ID + " = ?", new String[]{String.valueOf(picture.getId())});
+    }
+
+    /**
+     * @return shown pictures added from local files which have no upload url yet, their uploads were
+     * interrupted or failed
+     */
+    public synchronized List<UserPicture> loadPendingUploads() {
+        flush();
+        return query(SHOWN + " AND " + COLUMN_UPLOAD_URL + " IS NULL AND " + COLUMN_URL + " LIKE 'file:%'",
+                null, COLUMN_ORDER, null);
+    }
+
+    @Override
+    public synchronized void rebalance() {
+        flush();
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement update = db.compileStatement(
+                "UPDATE " + TABLE + " SET " + COLUMN_ORDER + " = ? WHERE " + COLUMN_ID + " = ?");
+        // Removed rows are rebalanced too, so they keep their place among shown ones
+        Cursor cursor = db.query(TABLE, new String[]{COLUMN_ID}, null, null, null, null, COLUMN_ORDER + ", " + COLUMN_REMOVED);
+        db.beginTransaction();
+        try {
+            for (int position = 0; cursor.moveToNext(); position++) {
+                update.bindLong(1, OrderKeys.keyAt(position));
+                update.bindLong(2, cursor.getLong(0));
+                update.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            cursor.close();
+            update.close();
+        }
+    }
+
+    /**
+     * Writes pending order updates in a single transaction
+     */
+    @Override
+    public synchronized void flush() {
+        if (mPendingOrders.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement update = db.compileStatement(
+                "UPDATE " + TABLE + " SET " + COLUMN_ORDER + " = ? WHERE " + COLUMN_ID + " = ?");
+        db.beginTransaction();
+        try {
+            for (UserPicture picture : mPendingOrders) {
+                update.bindLong(1, picture.getOrder());
+                update.bindLong(2, picture.getId());
+                update.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+            mPendingOrders.clear();
+        } finally {
+            db.endTransaction();
+            update.close();
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.voltazor.myapplication;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import com.squareup.picasso.OkHttpDownloader;
+import com.squareup.picasso.Picasso;
+
+import java.io.File;
+
+/**
+ * Two tier cache of downscaled photo thumbnails.
+ * <p>
+ * Thumbnails are keyed by source url and a target size bucket, so the full span main photo
+ * and the single span tiles never evict each other's bitmaps and never share a decode.
+ * Memory tier is an LRU bounded by bitmap bytes, disk tier keeps already downscaled JPEGs,
+ * so re-scrolling or re-ordering never decodes the full size source again.
+ */
+public class ThumbnailCache {
+
+    static final String SCHEME = "thumbnail";
+    static final String AUTHORITY = "cache";
+    static final String PARAM_URL = "url";
+    static final String PARAM_BUCKET = "bucket";
+
+    private static final String DISK_CACHE_DIR = "thumbnails";
+    private static final long DISK_CACHE_SIZE = 50 * 1024 * 1024;
+    private static final int MIN_BUCKET = 128;
+
+    private static volatile ThumbnailCache sInstance;
+
+    private final BitmapPool mBitmapPool;
+    private final ThumbnailMemoryCache mMemoryCache;
+    private final ThumbnailDiskCache mDiskCache;
+    private final SourceFetcher mSourceFetcher;
+    private final ImageTracer mTracer = new ImageTracer();
+    private final Picasso mPicasso;
+
+    private ThumbnailCache(Context context) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        // Same share of the heap Picasso takes by default
+        int maxBytes = am.getMemoryClass() * 1024 * 1024 / 7;
+        mBitmapPool = new BitmapPool(maxBytes / 4);
+        Metrics.get().addSource(mBitmapPool);
+        mMemoryCache = new ThumbnailMemoryCache(maxBytes, mBitmapPool);
+        mDiskCache = new ThumbnailDiskCache(new File(context.getCacheDir(), DISK_CACHE_DIR), DISK_CACHE_SIZE);
+        OkHttpDownloader downloader = new OkHttpDownloader(context);
+        mSourceFetcher = new SourceFetcher(downloader);
+        mPicasso = new Picasso.Builder(context)
+                .memoryCache(mMemoryCache)
+                .downloader(downloader)
+                .addRequestHandler(new ThumbnailRequestHandler(mDiskCache, mBitmapPool, mSourceFetcher, mTracer))
+                .build();
+    }
+
+    /**
+     * Creates cache and installs Picasso instance backed by it as a singleton,
+     * should be called once from {@link App#onCreate()}
+     */
+    public static void init(@NonNull Context context) {
+        sInstance = new ThumbnailCache(context.getApplicationContext());
+        Picasso.setSingletonInstance(sInstance.mPicasso);
+    }
+
+    public static ThumbnailCache get() {
+        if (sInstance == null) {
+            throw new IllegalStateException("ThumbnailCache is not initialized");
+        }
+        return sInstance;
+    }
+
+    public ThumbnailMemoryCache getMemoryCache() {
+        return mMemoryCache;
+    }
+
+    public BitmapPool getBitmapPool() {
+        return mBitmapPool;
+    }
+
+    public ThumbnailDiskCache getDiskCache() {
+        return mDiskCache;
+    }
+
+    ImageTracer getTracer() {
+        return mTracer;
+    }
+
+    /**
+     * Reports byte progress of the source download of the given url
+     */
+    public void addProgressListener(@NonNull String url, @NonNull SourceFetcher.ProgressListener listener) {
+        mSourceFetcher.addProgressListener(url, listener);
+    }
+
+    public void removeProgressListener(@NonNull String url, @NonNull SourceFetcher.ProgressListener listener) {
+        mSourceFetcher.removeProgressListener(url, listener);
+    }
+
+    /**
+     * Reports byte progress of another transfer of the url, e.g. upload of a local picture,
+     * to the same listeners
+     */
+    public void notifyProgress(@NonNull String url, long bytes, long contentLength) {
+        mSourceFetcher.notifyProgress(url, bytes, contentLength);
+    }
+
+    /**
+     * @param cacheKey memory cache key of the thumbnail, see {@link #getCacheKey(Uri)}
+     * @return true if thumbnail is in the memory tier and will be shown without any loading
+     */
+    public boolean isResident(@NonNull String cacheKey) {
+        return mMemoryCache.get(cacheKey) != null;
+    }
+
+    /**
+     * Rounds target size up to the bucket thumbnails are stored in.
+     * Buckets grow by a factor of 1.5 to 2, so a thumbnail is never more than twice the size it's shown at
+     */
+    public static int getSizeBucket(int size) {
+        int bucket = MIN_BUCKET;
+        while (bucket < size) {
+            int half = bucket + bucket / 2;
+            if (half >= size) {
+                return half;
+            }
+            bucket *= 2;
+        }
+        return bucket;
+    }
+
+    /**
+     * Memory cache key of the thumbnail, worth keeping along with the uri since it's a new string every time
+     */
+    public static String getCacheKey(@NonNull Uri uri) {
+        // Picasso keys requests without transformations by uri followed by a line break
+        return uri.toString() + '\n';
+    }
+
+    public static Uri getUri(@NonNull String url, int bucket) {
+        return new Uri.Builder().scheme(SCHEME).authority(AUTHORITY)
+                .appendQueryParameter(PARAM_URL, url)
+                .appendQueryParameter(PARAM_BUCKET, String.valueOf(bucket))
+                .build();
+    }
+
+}
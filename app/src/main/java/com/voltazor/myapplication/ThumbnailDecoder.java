@@ -0,0 +1,178 @@
+package com.voltazor.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+
+import timber.log.Timber;
+
+/**
+ * Decodes a source straight into the square thumbnail {@link SquareImageView} shows.
+ * <p>
+ * Only the center crop square is decoded. Sources larger than the thumbnail are read
+ * through {@link BitmapRegionDecoder} in horizontal strips, each strip is sampled and scaled
+ * into the exact target size right away, so besides the result only one strip is in memory.
+ */
+class ThumbnailDecoder {
+
+    private static final int STRIPS = 8;
+
+    private ThumbnailDecoder() {
+    }
+
+    /**
+     * @param size  side of the square thumbnail, smaller sources are not upscaled
+     * @param pool  source of the result bitmap, may be null
+     * @param stats receives peak bitmap memory and timings of the decode, may be null
+     */
+    @Nullable
+    static Bitmap decode(byte[] data, int size, Bitmap.Config config, @Nullable BitmapPool pool, @Nullable Stats stats) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        int width = options.outWidth;
+        int height = options.outHeight;
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        int side = Math.min(width, height);
+        int target = Math.min(size, side);
+        Rect crop = new Rect((width - side) / 2, (height - side) / 2, (width + side) / 2, (height + side) / 2);
+
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = config;
+        options.inSampleSize = getSampleSize(side, target);
+
+        if (side > target) {
+            try {
+                return decodeStrips(data, crop, target, options, pool, stats);
+            } catch (IOException e) {
+                Timber.w(e, "Region decoding is not supported, decoding whole source");
+            }
+        }
+        return decodeWhole(data, crop, target, options, stats);
+    }
+
+    /**
+     * @return the largest power of two sampling which still keeps at least target pixels per side
+     */
+    static int getSampleSize(int side, int target) {
+        int sampleSize = 1;
+        while (side / (sampleSize * 2) >= target) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static Bitmap decodeStrips(byte[] data, Rect crop, int target, BitmapFactory.Options options,
+                                       @Nullable BitmapPool pool, @Nullable Stats stats) throws IOException {
+        BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(data, 0, data.length, false);
+        Bitmap result = pool != null ? pool.get(target, target, options.inPreferredConfig) : null;
+        if (result == null || !result.isMutable()) {
+            result = Bitmap.createBitmap(target, target, options.inPreferredConfig);
+        } else {
+            // Pooled bitmap keeps the previous thumbnail, transparent strips would be drawn over it
+            result.eraseColor(Color.TRANSPARENT);
+        }
+        try {
+            Canvas canvas = new Canvas(result);
+            Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+            float scale = (float) target / crop.width();
+            int sampleSize = options.inSampleSize;
+            int stripHeight = (crop.height() + STRIPS - 1) / STRIPS;
+            stripHeight = ((stripHeight + sampleSize - 1) / sampleSize) * sampleSize;
+            Rect region = new Rect();
+            RectF destination = new RectF();
+            for (int top = crop.top; top < crop.bottom; top += stripHeight) {
+                // Strips overlap by one sampled row, so filtering leaves no seams
+                int bottom = Math.min(crop.bottom, top + stripHeight + sampleSize);
+                region.set(crop.left, top, crop.right, bottom);
+                long startNanos = System.nanoTime();
+                Bitmap strip = decoder.decodeRegion(region, options);
+                long decodedNanos = System.nanoTime();
+                if (strip == null) {
+                    throw new IOException("Unable to decode region " + region);
+                }
+                if (stats != null) {
+                    stats.record(result.getByteCount() + strip.getByteCount());
+                }
+                destination.set(0, (top - crop.top) * scale, target, (bottom - crop.top) * scale);
+                canvas.drawBitmap(strip, null, destination, paint);
+                strip.recycle();
+                if (stats != null) {
+                    stats.decodeNanos += decodedNanos - startNanos;
+                    stats.transformNanos += System.nanoTime() - decodedNanos;
+                }
+            }
+            return result;
+        } catch (IOException e) {
+            if (pool != null) {
+                pool.put(result);
+            } else {
+                result.recycle();
+            }
+            throw e;
+        } finally {
+            decoder.recycle();
+        }
+    }
+
+    private static Bitmap decodeWhole(byte[] data, Rect crop, int target, BitmapFactory.Options options, @Nullable Stats stats) {
+        options.inMutable = true;
+        long startNanos = System.nanoTime();
+        Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        long decodedNanos = System.nanoTime();
+        if (stats != null) {
+            stats.decodeNanos += decodedNanos - startNanos;
+        }
+        if (bitmap == null) {
+            return null;
+        }
+        int sampleSize = options.inSampleSize;
+        int left = crop.left / sampleSize;
+        int top = crop.top / sampleSize;
+        int side = Math.min(Math.min(bitmap.getWidth(), bitmap.getHeight()), crop.width() / sampleSize);
+        if (left == 0 && top == 0 && side == target && bitmap.getWidth() == side && bitmap.getHeight() == side) {
+            if (stats != null) {
+                stats.record(bitmap.getByteCount());
+            }
+            return bitmap;
+        }
+        Bitmap result = Bitmap.createBitmap(target, target, options.inPreferredConfig);
+        Canvas canvas = new Canvas(result);
+        canvas.drawBitmap(bitmap, new Rect(left, top, left + side, top + side), new Rect(0, 0, target, target),
+                new Paint(Paint.FILTER_BITMAP_FLAG));
+        if (stats != null) {
+            stats.record(bitmap.getByteCount() + result.getByteCount());
+            stats.transformNanos += System.nanoTime() - decodedNanos;
+        }
+        bitmap.recycle();
+        return result;
+    }
+
+    /**
+     * Peak memory of bitmaps alive at the same time during a decode, and time spent
+     * decoding the source apart from time spent cropping and scaling it
+     */
+    static class Stats {
+
+        long peakBytes;
+        long decodeNanos;
+        long transformNanos;
+
+        void record(long bytes) {
+            peakBytes = Math.max(peakBytes, bytes);
+        }
+
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.voltazor.myapplication;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import timber.log.Timber;
+
+/**
+ * Disk tier of {@link ThumbnailCache}: already downscaled thumbnails stored as JPEG files,
+ * least recently used files are deleted once the directory grows over its budget
+ */
+public class ThumbnailDiskCache {
+
+    private static final int JPEG_QUALITY = 85;
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+    private long mSize = -1;
+
+    public ThumbnailDiskCache(@NonNull File directory, long maxBytes) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+    }
+
+    @Nullable
+    public synchronized File get(@NonNull String url, int bucket) {
+        File file = getFile(url, bucket);
+        if (file.exists()) {
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(System.currentTimeMillis());
+            return file;
+        }
+        return null;
+    }
+
+    public synchronized void put(@NonNull String url, int bucket, @NonNull Bitmap bitmap) {
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            Timber.w("Unable to create thumbnails directory %s", mDirectory);
+            return;
+        }
+        File file = getFile(url, bucket);
+        File tmp = new File(mDirectory, file.getName() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tmp);
+            bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+            out.close();
+            out = null;
+            long previous = file.length();
+            if (tmp.renameTo(file)) {
+                mSize = getSize() - previous + file.length();
+                trimToSize();
+            }
+        } catch (IOException e) {
+            Timber.w(e, "Unable to store thumbnail of %s", url);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+        }
+    }
+
+    private long getSize() {
+        if (mSize < 0) {
+            mSize = 0;
+            File[] files = mDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    mSize += file.length();
+                }
+            }
+        }
+        return mSize;
+    }
+
+    private void trimToSize() {
+        if (mSize <= mMaxBytes) {
+            return;
+        }
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long l = lhs.lastModified(), r = rhs.lastModified();
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            if (mSize <= mMaxBytes) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                mSize -= length;
+            }
+        }
+    }
+
+    private File getFile(String url, int bucket) {
+        return new File(mDirectory, md5(url) + "_" + bucket + ".jpg");
+    }
+
+    private static String md5(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes());
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return String.valueOf(value.hashCode());
+        }
+    }
+
+}
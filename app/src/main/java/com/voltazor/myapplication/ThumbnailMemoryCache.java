@@ -0,0 +1,116 @@
+package com.voltazor.myapplication;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import com.squareup.picasso.Cache;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Memory tier of {@link ThumbnailCache}, LRU bounded by bitmap bytes.
+ * Evicted bitmaps go to the {@link BitmapPool} as soon as no tile displays them,
+ * tiles report that through {@link #acquire(Bitmap)} and {@link #release(Bitmap)}.
+ */
+public class ThumbnailMemoryCache implements Cache {
+
+    private final LruCache<String, Bitmap> mCache;
+    private final BitmapPool mBitmapPool;
+
+    private final Map<Bitmap, Integer> mInUse = new IdentityHashMap<>();
+    private final Map<Bitmap, Boolean> mEvicted = new IdentityHashMap<>();
+
+    public ThumbnailMemoryCache(int maxBytes, BitmapPool bitmapPool) {
+        mBitmapPool = bitmapPool;
+        mCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (oldValue != newValue) {
+                    onEntryRemoved(oldValue);
+                }
+            }
+        };
+    }
+
+    @Override
+    public Bitmap get(String key) {
+        return mCache.get(key);
+    }
+
+    @Override
+    public void set(String key, Bitmap bitmap) {
+        if (key == null || bitmap == null) {
+            throw new NullPointerException("key == null || bitmap == null");
+        }
+        mCache.put(key, bitmap);
+    }
+
+    @Override
+    public int size() {
+        return mCache.size();
+    }
+
+    @Override
+    public int maxSize() {
+        return mCache.maxSize();
+    }
+
+    @Override
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    @Override
+    public void clearKeyUri(String keyPrefix) {
+        for (Map.Entry<String, Bitmap> entry : mCache.snapshot().entrySet()) {
+            String key = entry.getKey();
+            if (key.startsWith(keyPrefix)) {
+                mCache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Marks bitmap as displayed, it won't be reused until {@link #release(Bitmap) released}
+     */
+    public synchronized void acquire(Bitmap bitmap) {
+        Integer count = mInUse.get(bitmap);
+        mInUse.put(bitmap, count == null ? 1 : count + 1);
+    }
+
+    public void release(Bitmap bitmap) {
+        boolean reusable = false;
+        synchronized (this) {
+            Integer count = mInUse.get(bitmap);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                mInUse.put(bitmap, count - 1);
+            } else {
+                mInUse.remove(bitmap);
+                reusable = mEvicted.remove(bitmap) != null;
+            }
+        }
+        if (reusable) {
+            mBitmapPool.put(bitmap);
+        }
+    }
+
+    private void onEntryRemoved(Bitmap bitmap) {
+        synchronized (this) {
+            if (mInUse.containsKey(bitmap)) {
+                mEvicted.put(bitmap, Boolean.TRUE);
+                return;
+            }
+        }
+        mBitmapPool.put(bitmap);
+    }
+
+}
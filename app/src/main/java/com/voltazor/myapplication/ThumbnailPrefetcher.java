@@ -0,0 +1,125 @@
+package com.voltazor.myapplication;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.squareup.picasso.Picasso;
+
+/**
+ * Warms {@link ThumbnailCache} for rows which are about to scroll into the viewport.
+ * Number of rows fetched ahead follows scroll velocity, requests run at low priority
+ * and are cancelled as soon as the scroll direction changes.
+ */
+public class ThumbnailPrefetcher extends RecyclerView.OnScrollListener {
+
+    private static final Object TAG = new Object();
+
+    /**
+     * How far ahead in time prefetching looks
+     */
+    private static final long LOOKAHEAD_MS = 500;
+    private static final int MIN_ROWS = 1;
+    private static final int MAX_ROWS = 6;
+
+    private final Context mContext;
+    private final GridLayoutManager mLayoutManager;
+    private final ThumbnailProvider mProvider;
+
+    private int mDirection;
+    private long mLastScrollTime;
+    private float mVelocity;
+
+    /**
+     * Farthest position already requested in the current direction
+     */
+    private int mPrefetchedPosition = RecyclerView.NO_POSITION;
+
+    public ThumbnailPrefetcher(@NonNull Context context, @NonNull GridLayoutManager layoutManager, @NonNull ThumbnailProvider provider) {
+        mContext = context;
+        mLayoutManager = layoutManager;
+        mProvider = provider;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0) {
+            return;
+        }
+        int direction = dy > 0 ? 1 : -1;
+        if (direction != mDirection) {
+            cancel();
+            mDirection = direction;
+            mVelocity = 0;
+        }
+        updateVelocity(Math.abs(dy));
+        prefetch();
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            mVelocity = 0;
+        }
+    }
+
+    public void cancel() {
+        Picasso.with(mContext).cancelTag(TAG);
+        mPrefetchedPosition = RecyclerView.NO_POSITION;
+    }
+
+    private void updateVelocity(int distance) {
+        long now = SystemClock.uptimeMillis();
+        long elapsed = now - mLastScrollTime;
+        mLastScrollTime = now;
+        if (elapsed > 0 && elapsed < LOOKAHEAD_MS) {
+            float velocity = (float) distance / elapsed;
+            // Smooth out uneven frame deltas
+            mVelocity = mVelocity == 0 ? velocity : (mVelocity + velocity) / 2f;
+        }
+    }
+
+    private void prefetch() {
+        int spanCount = mLayoutManager.getSpanCount();
+        int edge = mDirection > 0 ? mLayoutManager.findLastVisibleItemPosition() : mLayoutManager.findFirstVisibleItemPosition();
+        if (edge == RecyclerView.NO_POSITION) {
+            return;
+        }
+        View edgeView = mLayoutManager.findViewByPosition(edge);
+        int rowHeight = edgeView != null && edgeView.getHeight() > 0 ? edgeView.getHeight() : 1;
+        int rows = (int) Math.ceil(mVelocity * LOOKAHEAD_MS / rowHeight);
+        rows = Math.max(MIN_ROWS, Math.min(MAX_ROWS, rows));
+
+        int count = mProvider.getItemCount();
+        int target = edge + mDirection * rows * spanCount;
+        target = Math.max(0, Math.min(count - 1, target));
+
+        int from = mPrefetchedPosition != RecyclerView.NO_POSITION && (mPrefetchedPosition - edge) * mDirection > 0
+                ? mPrefetchedPosition + mDirection : edge + mDirection;
+        Picasso picasso = Picasso.with(mContext);
+        for (int position = from; (target - position) * mDirection >= 0; position += mDirection) {
+            Uri uri = mProvider.getThumbnailUri(position);
+            if (uri != null) {
+                picasso.load(uri).config(Bitmap.Config.RGB_565).priority(Picasso.Priority.LOW).tag(TAG).fetch();
+            }
+            mPrefetchedPosition = position;
+        }
+    }
+
+    public interface ThumbnailProvider {
+
+        int getItemCount();
+
+        @Nullable
+        Uri getThumbnailUri(int position);
+
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.voltazor.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.Request;
+import com.squareup.picasso.RequestHandler;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Loads {@link ThumbnailCache#getUri(String, int) thumbnail uris}: reads the downscaled thumbnail
+ * from disk tier, or downloads the source, decodes its center crop straight to the bucket size and stores the result
+ */
+class ThumbnailRequestHandler extends RequestHandler {
+
+    private final ThumbnailDiskCache mDiskCache;
+    private final BitmapPool mBitmapPool;
+    private final SourceFetcher mSourceFetcher;
+    private final ImageTracer mTracer;
+
+    ThumbnailRequestHandler(ThumbnailDiskCache diskCache, BitmapPool bitmapPool, SourceFetcher sourceFetcher,
+                            ImageTracer tracer) {
+        mDiskCache = diskCache;
+        mBitmapPool = bitmapPool;
+        mSourceFetcher = sourceFetcher;
+        mTracer = tracer;
+    }
+
+    @Override
+    public boolean canHandle(Request data) {
+        return data.uri != null && ThumbnailCache.SCHEME.equals(data.uri.getScheme());
+    }
+
+    @Override
+    public Result load(Request request, int networkPolicy) throws IOException {
+        String url = request.uri.getQueryParameter(ThumbnailCache.PARAM_URL);
+        int bucket = Integer.parseInt(request.uri.getQueryParameter(ThumbnailCache.PARAM_BUCKET));
+        Bitmap.Config config = request.config != null ? request.config : Bitmap.Config.ARGB_8888;
+        mTracer.onLoadStarted(request.uri);
+
+        long startNanos = ImageTracer.beginStage(ImageTracer.STAGE_DISK_READ);
+        Bitmap bitmap;
+        try {
+            File file = mDiskCache.get(url, bucket);
+            bitmap = file != null ? decodeThumbnail(file, config) : null;
+        } finally {
+            mTracer.endStage(request.uri, ImageTracer.STAGE_DISK_READ, startNanos);
+        }
+        if (bitmap != null) {
+            mTracer.onLoadFinished(request.uri);
+            return new Result(bitmap, Picasso.LoadedFrom.DISK);
+        }
+
+        byte[] data;
+        startNanos = ImageTracer.beginStage(ImageTracer.STAGE_FETCH);
+        try {
+            data = mSourceFetcher.fetch(url, networkPolicy, request.priority);
+        } finally {
+            mTracer.endStage(request.uri, ImageTracer.STAGE_FETCH, startNanos);
+        }
+
+        // Decoder crops and scales strip by strip, so transform is measured by it inside the decode section
+        ThumbnailDecoder.Stats stats = new ThumbnailDecoder.Stats();
+        startNanos = ImageTracer.beginStage(ImageTracer.STAGE_DECODE);
+        try {
+            bitmap = ThumbnailDecoder.decode(data, bucket, config, mBitmapPool, stats);
+        } finally {
+            mTracer.endStage(request.uri, ImageTracer.STAGE_DECODE, startNanos,
+                    ImageTracer.STAGE_TRANSFORM, stats.transformNanos);
+        }
+        if (bitmap == null) {
+            throw new IOException("Unable to decode " + url);
+        }
+        startNanos = ImageTracer.beginStage(ImageTracer.STAGE_DISK_WRITE);
+        try {
+            mDiskCache.put(url, bucket, bitmap);
+        } finally {
+            mTracer.endStage(request.uri, ImageTracer.STAGE_DISK_WRITE, startNanos);
+        }
+        mTracer.onLoadFinished(request.uri);
+        return new Result(bitmap, Picasso.LoadedFrom.NETWORK);
+    }
+
+    /**
+     * Thumbnails are stored at bucket size already, so they're decoded without sampling
+     * into a pooled bitmap of the same size when there is one
+     */
+    private Bitmap decodeThumbnail(File file, Bitmap.Config config) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = config;
+        options.inMutable = true;
+        options.inSampleSize = 1;
+        options.inBitmap = mBitmapPool.get(options.outWidth, options.outHeight, config);
+        try {
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        } catch (IllegalArgumentException e) {
+            // Decoder refused the pooled bitmap, decode into a new one
+            mBitmapPool.put(options.inBitmap);
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.voltazor.myapplication;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Flies tile images between their old and new slots on top of the list, as many at once as there are overlays.
+ * <p>
+ * Overlays fill the container the list lives in and are laid out once when the pool is created.
+ * A tile rectangle is expressed as translation and scale around the top left corner, so running
+ * an animation only updates render properties and never measures or lays out anything.
+ * When every overlay is busy the oldest animation is ended to free one.
+ */
+class TileSwapAnimator {
+
+    private static final int MAX_OVERLAYS = 4;
+
+    private final Overlay[] mOverlays;
+    private long mStartCount;
+
+    /**
+     * @param firstOverlay overlay from the layout, it must fill its parent,
+     *                     the rest of the pool is added next to it right away
+     */
+    TileSwapAnimator(@NonNull ImageView firstOverlay) {
+        mOverlays = new Overlay[MAX_OVERLAYS];
+        mOverlays[0] = new Overlay(firstOverlay);
+        ViewGroup container = (ViewGroup) firstOverlay.getParent();
+        int index = container.indexOfChild(firstOverlay);
+        for (int i = 1; i < MAX_OVERLAYS; i++) {
+            ImageView view = new ImageView(firstOverlay.getContext());
+            view.setScaleType(ImageView.ScaleType.FIT_XY);
+            view.setVisibility(View.INVISIBLE);
+            container.addView(view, index + i, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                    ViewGroup.LayoutParams.MATCH_PARENT));
+            mOverlays[i] = new Overlay(view);
+        }
+    }
+
+    /**
+     * Shows the drawable in place of the hidden view, then moves and scales it from one rectangle to another.
+     * Rectangles are in coordinates of the overlay container. The hidden view is shown again at the end
+     */
+    void animate(@NonNull Drawable drawable, @NonNull View hiddenView, float fromLeft, float fromTop, float fromWidth,
+                 float fromHeight, float toLeft, float toTop, float toWidth, float toHeight, long duration) {
+        end(hiddenView);
+        Overlay overlay = obtain();
+        ImageView view = overlay.view;
+        if (view.getWidth() == 0 || view.getHeight() == 0) {
+            // Not laid out yet, nothing to animate with
+            return;
+        }
+        // Own drawable instance, sharing the tile's one would move its bounds and invalidation to the overlay
+        Drawable.ConstantState state = drawable.getConstantState();
+        view.setImageDrawable(state != null ? state.newDrawable(view.getResources()) : drawable);
+        // The tile may be recycled mid-swap, the overlay keeps its bitmap out of the pool meanwhile
+        if (drawable instanceof BitmapDrawable) {
+            overlay.bitmap = ((BitmapDrawable) drawable).getBitmap();
+            ThumbnailCache.get().getMemoryCache().acquire(overlay.bitmap);
+        }
+        view.setPivotX(0);
+        view.setPivotY(0);
+        view.setTranslationX(fromLeft);
+        view.setTranslationY(fromTop);
+        view.setScaleX(fromWidth / view.getWidth());
+        view.setScaleY(fromHeight / view.getHeight());
+        view.setVisibility(View.VISIBLE);
+
+        overlay.hiddenView = hiddenView;
+        overlay.startIndex = ++mStartCount;
+        hiddenView.setVisibility(View.INVISIBLE);
+
+        view.animate().translationX(toLeft).translationY(toTop)
+                .scaleX(toWidth / view.getWidth()).scaleY(toHeight / view.getHeight())
+                .setDuration(duration).setListener(overlay);
+    }
+
+    /**
+     * Ends the animation that keeps the view hidden, if any
+     */
+    void end(@NonNull View hiddenView) {
+        for (Overlay overlay : mOverlays) {
+            if (overlay.hiddenView == hiddenView) {
+                overlay.view.animate().cancel();
+            }
+        }
+    }
+
+    /**
+     * @return a free overlay, or the one running the oldest animation after ending it
+     */
+    private Overlay obtain() {
+        Overlay oldest = null;
+        for (Overlay overlay : mOverlays) {
+            if (!overlay.isRunning()) {
+                return overlay;
+            }
+            if (oldest == null || overlay.startIndex < oldest.startIndex) {
+                oldest = overlay;
+            }
+        }
+        // Ends the animation, its listener frees the overlay
+        oldest.view.animate().cancel();
+        return oldest;
+    }
+
+    private class Overlay extends AnimatorListenerAdapter {
+
+        final ImageView view;
+        View hiddenView;
+        Bitmap bitmap;
+        long startIndex;
+
+        Overlay(ImageView view) {
+            this.view = view;
+        }
+
+        boolean isRunning() {
+            return hiddenView != null;
+        }
+
+        @Override
+        public void onAnimationCancel(Animator animation) {
+            finish();
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            finish();
+        }
+
+        private void finish() {
+            if (hiddenView == null) {
+                return;
+            }
+            hiddenView.setVisibility(View.VISIBLE);
+            hiddenView = null;
+            view.setVisibility(View.INVISIBLE);
+            view.setImageDrawable(null);
+            if (bitmap != null) {
+                ThumbnailCache.get().getMemoryCache().release(bitmap);
+                bitmap = null;
+            }
+        }
+
+    }
+
+}
@@ -4,10 +4,12 @@ public class UserPicture {
 
     private long id;
 
-    private int order;
+    private long order;
 
     private String pictureUrl;
 
+    private String uploadUrl;
+
     public long getId() {
         return id;
     }
@@ -16,11 +18,11 @@ public class UserPicture {
         this.id = id;
     }
 
-    public int getOrder() {
+    public long getOrder() {
         return order;
     }
 
-    public void setOrder(int order) {
+    public void setOrder(long order) {
         this.order = order;
     }
 
@@ -32,4 +34,28 @@ public class UserPicture {
         this.pictureUrl = pictureUrl;
     }
 
+    /**
+     * @return location of the finished upload on the server, null while the picture exists locally only
+     */
+    public String getUploadUrl() {
+        return uploadUrl;
+    }
+
+    public void setUploadUrl(String uploadUrl) {
+        this.uploadUrl = uploadUrl;
+    }
+
+    /**
+     * Pictures are identified by id, order and urls may change
+     */
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof UserPicture && id == ((UserPicture) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (id ^ (id >>> 32));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.voltazor.myapplication;
+
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ChunkedUploaderTest {
+
+    private static final String CONTENT = "0123456789";
+
+    private MockWebServer mServer;
+    private File mFile;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.play();
+        mFile = File.createTempFile("upload", ".jpg");
+        FileOutputStream out = new FileOutputStream(mFile);
+        out.write(CONTENT.getBytes("UTF-8"));
+        out.close();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+        mFile.delete();
+    }
+
+    @Test
+    public void upload_resumesFromConfirmedOffset() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/uploads/1"));
+        mServer.enqueue(offset(4));
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        // Server kept a part of the failed chunk
+        mServer.enqueue(offset(6));
+        mServer.enqueue(offset(10));
+
+        final long[] progress = new long[1];
+        ChunkedUploader uploader = new ChunkedUploader(new OkHttpClient(), mServer.getUrl("/").toString(), 4, 1);
+        String location = uploader.upload(mFile, new SourceFetcher.ProgressListener() {
+            @Override
+            public void onProgress(long bytesRead, long contentLength) {
+                assertEquals(CONTENT.length(), contentLength);
+                progress[0] = bytesRead;
+            }
+        });
+        assertEquals(mServer.getUrl("/uploads/1").toString(), location);
+        assertEquals(CONTENT.length(), progress[0]);
+
+        RecordedRequest create = mServer.takeRequest();
+        assertEquals("POST", create.getMethod());
+        assertEquals("/" + ChunkedUploader.PATH, create.getPath());
+        assertEquals("10", create.getHeader(ChunkedUploader.HEADER_UPLOAD_LENGTH));
+        assertChunk(mServer.takeRequest(), 0, "0123");
+        assertChunk(mServer.takeRequest(), 4, "4567");
+        assertEquals("HEAD", mServer.takeRequest().getMethod());
+        assertChunk(mServer.takeRequest(), 6, "6789");
+        assertEquals(5, mServer.getRequestCount());
+    }
+
+    @Test
+    public void upload_retriesFailedOffsetQuery() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/uploads/1"));
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(offset(2));
+        mServer.enqueue(offset(6));
+        mServer.enqueue(offset(10));
+
+        ChunkedUploader uploader = new ChunkedUploader(new OkHttpClient(), mServer.getUrl("/").toString(), 4, 1);
+        uploader.upload(mFile, null);
+
+        mServer.takeRequest();
+        assertChunk(mServer.takeRequest(), 0, "0123");
+        assertEquals("HEAD", mServer.takeRequest().getMethod());
+        assertEquals("HEAD", mServer.takeRequest().getMethod());
+        assertChunk(mServer.takeRequest(), 2, "2345");
+        assertChunk(mServer.takeRequest(), 6, "6789");
+        assertEquals(6, mServer.getRequestCount());
+    }
+
+    @Test
+    public void upload_givesUpWhenServerConfirmsNoProgress() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", "/uploads/1"));
+        // Every chunk is answered with the offset it was sent at, as is every offset query
+        for (int i = 0; i < 2 * ChunkedUploader.MAX_ATTEMPTS - 1; i++) {
+            mServer.enqueue(offset(0));
+        }
+
+        ChunkedUploader uploader = new ChunkedUploader(new OkHttpClient(), mServer.getUrl("/").toString(), 4, 1);
+        try {
+            uploader.upload(mFile, null);
+            fail("Upload without progress should fail");
+        } catch (IOException expected) {
+        }
+        assertEquals(2 * ChunkedUploader.MAX_ATTEMPTS, mServer.getRequestCount());
+    }
+
+    private static MockResponse offset(long offset) {
+        return new MockResponse().setResponseCode(204).setHeader(ChunkedUploader.HEADER_UPLOAD_OFFSET, offset);
+    }
+
+    private static void assertChunk(RecordedRequest request, long offset, String content) {
+        assertEquals("PATCH", request.getMethod());
+        assertEquals("/uploads/1", request.getPath());
+        assertEquals(String.valueOf(offset), request.getHeader(ChunkedUploader.HEADER_UPLOAD_OFFSET));
+        assertEquals(content, request.getUtf8Body());
+    }
+
+}
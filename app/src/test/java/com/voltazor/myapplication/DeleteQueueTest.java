@@ -0,0 +1,111 @@
+package com.voltazor.myapplication;
+
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class DeleteQueueTest {
+
+    private MockWebServer mServer;
+    private ListPictureStore mStore;
+    private DeleteQueue mQueue;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.play();
+        List<UserPicture> pictures = new ArrayList<>();
+        for (int id = 1; id <= 10; id++) {
+            pictures.add(picture(id));
+        }
+        mStore = new ListPictureStore(pictures);
+        mQueue = new DeleteQueue(new OkHttpClient(), mServer.getUrl("/").toString(), mStore,
+                Executors.newSingleThreadScheduledExecutor(), 100, 10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mQueue.shutdown();
+        mServer.shutdown();
+    }
+
+    @Test
+    public void enqueue_sendsRapidRemovalsAsOneBatch() throws Exception {
+        mServer.enqueue(new MockResponse());
+        for (int id = 1; id <= 10; id++) {
+            assertEquals(id, mQueue.enqueue(remove(id)));
+        }
+
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals("POST", request.getMethod());
+        assertEquals("/" + DeleteQueue.PATH, request.getPath());
+        assertNotNull(request.getHeader(DeleteQueue.HEADER_IDEMPOTENCY_KEY));
+        assertEquals("{\"ids\":[1,2,3,4,5,6,7,8,9,10]}", request.getUtf8Body());
+        Thread.sleep(300);
+        assertEquals(1, mServer.getRequestCount());
+        // Confirmed deletions are purged
+        assertTrue(mStore.loadRemoved().isEmpty());
+    }
+
+    @Test
+    public void undo_returnsPendingPicturesAndSendsNothing() throws Exception {
+        mQueue.enqueue(remove(1));
+        mQueue.enqueue(remove(2));
+        List<UserPicture> restored = mQueue.undo();
+
+        assertEquals(2, restored.size());
+        assertEquals(1, restored.get(0).getId());
+        Thread.sleep(300);
+        assertEquals(0, mServer.getRequestCount());
+    }
+
+    @Test
+    public void sendRemoved_resendsBatchesWhichRanOutOfAttempts() throws Exception {
+        for (int i = 0; i < DeleteQueue.MAX_ATTEMPTS; i++) {
+            mServer.enqueue(new MockResponse().setResponseCode(503));
+        }
+        mServer.enqueue(new MockResponse());
+        mQueue.enqueue(remove(1));
+        mQueue.flush();
+        for (int i = 0; i < DeleteQueue.MAX_ATTEMPTS; i++) {
+            mServer.takeRequest();
+        }
+        Thread.sleep(300);
+        assertEquals(DeleteQueue.MAX_ATTEMPTS, mServer.getRequestCount());
+        assertEquals(1, mStore.loadRemoved().size());
+
+        // Picture removed meanwhile can still be undone, it isn't sent along
+        mQueue.enqueue(remove(2));
+        mQueue.sendRemoved();
+        assertEquals("{\"ids\":[1]}", mServer.takeRequest().getUtf8Body());
+        assertEquals(2, mQueue.undo().get(0).getId());
+        Thread.sleep(50);
+        List<UserPicture> removed = mStore.loadRemoved();
+        assertEquals(1, removed.size());
+        assertEquals(2, removed.get(0).getId());
+    }
+
+    private UserPicture remove(long id) {
+        UserPicture picture = picture(id);
+        mStore.remove(picture);
+        return picture;
+    }
+
+    private static UserPicture picture(long id) {
+        UserPicture picture = new UserPicture();
+        picture.setId(id);
+        return picture;
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.voltazor.myapplication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class DropTargetIndexTest {
+
+    private static final int SPAN_COUNT = 4;
+    private static final int TILE_SIZE = 180;
+
+    private DropTargetIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = new DropTargetIndex();
+        // Main photo spans the whole row, then single span tiles follow
+        mIndex.add(0, 0, 0, TILE_SIZE * SPAN_COUNT, TILE_SIZE * SPAN_COUNT);
+        for (int position = 1; position < 200; position++) {
+            int column = (position - 1) % SPAN_COUNT;
+            int row = SPAN_COUNT + (position - 1) / SPAN_COUNT;
+            mIndex.add(position, column * TILE_SIZE, row * TILE_SIZE, (column + 1) * TILE_SIZE, (row + 1) * TILE_SIZE);
+        }
+        mIndex.build();
+    }
+
+    @Test
+    public void query_returnsOnlyCellsUnderThumb() {
+        int[] out = new int[mIndex.size()];
+        int count = mIndex.query(TILE_SIZE / 2, TILE_SIZE * 5 + TILE_SIZE / 2,
+                TILE_SIZE / 2 + TILE_SIZE, TILE_SIZE * 6 + TILE_SIZE / 2, out);
+        assertEquals(4, count);
+    }
+
+    @Test
+    public void findDropTarget_choosesLargestIntersection() {
+        int left = TILE_SIZE + 20;
+        int top = TILE_SIZE * 6 + 10;
+        int entry = mIndex.findDropTarget(left, top, left + TILE_SIZE, top + TILE_SIZE, 1);
+        assertNotEquals(DropTargetIndex.NO_ENTRY, entry);
+        assertEquals(10, mIndex.getPosition(entry));
+    }
+
+    @Test
+    public void findDropTarget_skipsDraggedItem() {
+        int top = TILE_SIZE * 4;
+        int entry = mIndex.findDropTarget(0, top, TILE_SIZE, top + TILE_SIZE, 1);
+        assertEquals(DropTargetIndex.NO_ENTRY, entry);
+    }
+
+    @Test
+    public void findDropTarget_mainPhotoIsReachable() {
+        int entry = mIndex.findDropTarget(TILE_SIZE, TILE_SIZE, TILE_SIZE * 2, TILE_SIZE * 2, 5);
+        assertEquals(0, mIndex.getPosition(entry));
+    }
+
+    @Test
+    public void findDropTarget_acrossScrolledBoundary() {
+        int screenHeight = TILE_SIZE * 8;
+        DropTargetIndex index = new DropTargetIndex();
+        addBoundTiles(index, 0, screenHeight);
+        index.build();
+
+        // Auto-scroll step moves the list by a row and a half, the scroll listener shifts the index
+        int scrollY = TILE_SIZE * 3 / 2;
+        index.offset(0, -scrollY);
+        // Thumb at the bottom edge lies mostly over the first row bound by the scroll, which isn't indexed yet
+        int top = screenHeight - TILE_SIZE * 7 / 4;
+        int entry = index.findDropTarget(0, top, TILE_SIZE, top + TILE_SIZE, 1);
+        assertEquals(DropTargetIndex.NO_ENTRY, entry);
+
+        // Rebuild takes the laid out tiles of the new rows before the drop is evaluated
+        index.clear();
+        addBoundTiles(index, scrollY, screenHeight);
+        index.build();
+        entry = index.findDropTarget(0, top, TILE_SIZE, top + TILE_SIZE, 1);
+        assertEquals(17, index.getPosition(entry));
+    }
+
+    @Test
+    public void findDropTarget_doesNotAllocateAfterWarmUp() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < 20000; i++) {
+            moveEvent(i);
+        }
+        long calibration = threadBean.getThreadAllocatedBytes(threadId);
+        calibration = threadBean.getThreadAllocatedBytes(threadId) - calibration;
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 20000; i++) {
+            moveEvent(i);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before - calibration;
+        assertEquals(0, allocated);
+    }
+
+    /**
+     * Adds tiles of the setUp layout which are visible with the given scroll, at their screen bounds
+     */
+    private static void addBoundTiles(DropTargetIndex index, int scrollY, int screenHeight) {
+        index.add(0, 0, -scrollY, TILE_SIZE * SPAN_COUNT, TILE_SIZE * SPAN_COUNT - scrollY);
+        for (int position = 1; position < 200; position++) {
+            int column = (position - 1) % SPAN_COUNT;
+            int top = (SPAN_COUNT + (position - 1) / SPAN_COUNT) * TILE_SIZE - scrollY;
+            if (top < screenHeight && top + TILE_SIZE > 0) {
+                index.add(position, column * TILE_SIZE, top, (column + 1) * TILE_SIZE, top + TILE_SIZE);
+            }
+        }
+    }
+
+    private void moveEvent(int step) {
+        int left = step % (TILE_SIZE * SPAN_COUNT);
+        int top = step % (TILE_SIZE * 50);
+        mIndex.findDropTarget(left, top, left + TILE_SIZE, top + TILE_SIZE, 1);
+    }
+
+}
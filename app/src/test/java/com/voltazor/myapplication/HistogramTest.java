@@ -0,0 +1,47 @@
+package com.voltazor.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void bucketBounds_coverEveryValueOnce() {
+        long previousBound = -1;
+        for (int bucket = 0; bucket <= Histogram.bucketOf(Long.MAX_VALUE); bucket++) {
+            long bound = Histogram.upperBoundOf(bucket);
+            assertTrue(bound > previousBound);
+            assertEquals(bucket, Histogram.bucketOf(bound));
+            assertEquals(bucket, Histogram.bucketOf(previousBound + 1));
+            previousBound = bound;
+        }
+        assertEquals(Long.MAX_VALUE, previousBound);
+    }
+
+    @Test
+    public void percentiles_areWithinBucketError() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000000L, histogram.getMax());
+        assertEquals(500.5e6, histogram.getMean(), 1);
+        long p50 = histogram.getValueAtPercentile(50);
+        assertTrue(p50 >= 500e6 && p50 <= 500e6 * 1.25);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p99 >= 990e6 && p99 <= 1000e6);
+    }
+
+    @Test
+    public void reset_clearsEverything() {
+        Histogram histogram = new Histogram();
+        histogram.record(16000000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.voltazor.myapplication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ItemAnimationSchedulerTest {
+
+    private static final long FRAME = 16000000;
+    private static final long DURATION = 10 * FRAME;
+
+    private final List<String> mEvents = new ArrayList<>();
+    private final float[] mTranslationY = new float[10];
+    private final float[] mAlpha = new float[10];
+
+    private ItemAnimationScheduler<Integer> mScheduler;
+    private final long[] mDelays = new long[ItemAnimationScheduler.TYPE_COUNT];
+
+    @Before
+    public void setUp() {
+        mScheduler = new ItemAnimationScheduler<>(new ItemAnimationScheduler.Renderer<Integer>() {
+            @Override
+            public void onStarted(Integer item, int type) {
+                mEvents.add("start " + item);
+            }
+
+            @Override
+            public void onUpdate(Integer item, float translationX, float translationY, float alpha) {
+                mTranslationY[item] = translationY;
+                mAlpha[item] = alpha;
+            }
+
+            @Override
+            public void onFinished(Integer item, int type) {
+                mEvents.add("finish " + item);
+            }
+        });
+    }
+
+    @Test
+    public void tick_movesFromStartToEndValues() {
+        mScheduler.schedule(1, ItemAnimationScheduler.TYPE_MOVE, DURATION, 0, -100, 1, 0, 0, 1);
+        assertEquals(-100, mTranslationY[1], 0);
+        assertTrue(mScheduler.hasPending());
+        assertFalse(mScheduler.tick(0));
+
+        mScheduler.startPending(mDelays);
+        assertTrue(mScheduler.tick(FRAME));
+        assertEquals(-100, mTranslationY[1], 0);
+        assertTrue(mScheduler.tick(FRAME + DURATION / 2));
+        assertEquals(-50, mTranslationY[1], 0.01);
+        assertFalse(mScheduler.tick(FRAME + DURATION));
+        assertEquals(0, mTranslationY[1], 0);
+        assertFalse(mScheduler.isRunning());
+        assertEquals(2, mEvents.size());
+        assertEquals("start 1", mEvents.get(0));
+        assertEquals("finish 1", mEvents.get(1));
+    }
+
+    @Test
+    public void tick_startsTypesAfterTheirDelays() {
+        mScheduler.schedule(1, ItemAnimationScheduler.TYPE_REMOVE, DURATION, 0, 0, 1, 0, 0, 0);
+        mScheduler.schedule(2, ItemAnimationScheduler.TYPE_ADD, DURATION, 0, 0, 0, 0, 0, 1);
+        mDelays[ItemAnimationScheduler.TYPE_ADD] = DURATION;
+        mScheduler.startPending(mDelays);
+
+        mScheduler.tick(0);
+        assertEquals(1, mEvents.size());
+        mScheduler.tick(DURATION);
+        assertEquals(0, mAlpha[1], 0);
+        assertEquals(0, mAlpha[2], 0);
+        assertTrue(mEvents.contains("finish 1"));
+        assertTrue(mEvents.contains("start 2"));
+        assertTrue(mScheduler.isRunning());
+        mScheduler.tick(DURATION * 2);
+        assertEquals(1, mAlpha[2], 0);
+        assertFalse(mScheduler.isRunning());
+        assertEquals("finish 2", mEvents.get(3));
+    }
+
+    @Test
+    public void end_jumpsOnlyThatItemToTheEnd() {
+        for (int item = 0; item < 5; item++) {
+            mScheduler.schedule(item, ItemAnimationScheduler.TYPE_MOVE, DURATION, 0, -100, 1, 0, 0, 1);
+        }
+        mScheduler.startPending(mDelays);
+        mScheduler.tick(0);
+        assertTrue(mScheduler.end(2));
+        assertFalse(mScheduler.end(2));
+        assertEquals(0, mTranslationY[2], 0);
+        assertEquals(-100, mTranslationY[4], 0);
+
+        mScheduler.endAll();
+        assertFalse(mScheduler.isRunning());
+        for (int item = 0; item < 5; item++) {
+            assertEquals(0, mTranslationY[item], 0);
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.voltazor.myapplication;
+
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class OrderSyncQueueTest {
+
+    private MockWebServer mServer;
+    private OrderSyncQueue mQueue;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.play();
+        mQueue = new OrderSyncQueue(new OkHttpClient(), mServer.getUrl("/").toString(),
+                Executors.newSingleThreadScheduledExecutor(), 10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mQueue.shutdown();
+        mServer.shutdown();
+    }
+
+    @Test
+    public void commit_sendsCoalescedBatchOnce() throws Exception {
+        mServer.enqueue(new MockResponse());
+        // Thumb crosses tiles back and forth during one gesture
+        mQueue.record(picture(1, 300));
+        mQueue.record(picture(2, 100));
+        mQueue.record(picture(1, 150));
+        mQueue.commit();
+        mQueue.commit();
+
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals("PUT", request.getMethod());
+        assertEquals("/" + OrderSyncQueue.PATH, request.getPath());
+        assertNotNull(request.getHeader(OrderSyncQueue.HEADER_IDEMPOTENCY_KEY));
+        assertEquals("{\"orders\":[{\"id\":2,\"order\":100},{\"id\":1,\"order\":150}]}", request.getUtf8Body());
+        // Second commit had nothing to send
+        Thread.sleep(200);
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void commit_retriesWithSameIdempotencyKey() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse());
+        mQueue.record(picture(1, 300));
+        mQueue.commit();
+
+        RecordedRequest failed = mServer.takeRequest();
+        RecordedRequest retried = mServer.takeRequest();
+        assertEquals(failed.getHeader(OrderSyncQueue.HEADER_IDEMPOTENCY_KEY),
+                retried.getHeader(OrderSyncQueue.HEADER_IDEMPOTENCY_KEY));
+        assertEquals(failed.getUtf8Body(), retried.getUtf8Body());
+    }
+
+    @Test
+    public void commit_isSentWhenShutDownRightAfter() throws Exception {
+        mServer.enqueue(new MockResponse());
+        mQueue.record(picture(1, 300));
+        mQueue.commit();
+        mQueue.shutdown();
+
+        assertEquals("{\"orders\":[{\"id\":1,\"order\":300}]}", mServer.takeRequest().getUtf8Body());
+    }
+
+    @Test
+    public void recordAll_sendsEveryKeyOfTheStore() throws Exception {
+        mServer.enqueue(new MockResponse());
+        List<UserPicture> pictures = new ArrayList<>();
+        for (int id = 1; id <= 3; id++) {
+            pictures.add(picture(id, 0));
+        }
+        mQueue.recordAll(new ListPictureStore(pictures));
+        mQueue.commit();
+
+        assertEquals("{\"orders\":[{\"id\":1,\"order\":" + OrderKeys.keyAt(0) + "},{\"id\":2,\"order\":"
+                + OrderKeys.keyAt(1) + "},{\"id\":3,\"order\":" + OrderKeys.keyAt(2) + "}]}", mServer.takeRequest().getUtf8Body());
+    }
+
+    private static UserPicture picture(long id, long order) {
+        UserPicture picture = new UserPicture();
+        picture.setId(id);
+        picture.setOrder(order);
+        return picture;
+    }
+
+}
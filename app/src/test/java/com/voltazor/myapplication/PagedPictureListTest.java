@@ -0,0 +1,195 @@
+package com.voltazor.myapplication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class PagedPictureListTest {
+
+    private static final int COUNT = 1000;
+
+    private List<UserPicture> mExpected;
+    private PagedPictureList mPictures;
+
+    @Before
+    public void setUp() {
+        mExpected = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++) {
+            UserPicture picture = new UserPicture();
+            picture.setId(i + 1);
+            mExpected.add(picture);
+        }
+        mPictures = new PagedPictureList(new ListPictureStore(mExpected));
+    }
+
+    @Test
+    public void scrolling_keepsBoundedPagesResident() {
+        for (int position = 0; position < COUNT; position++) {
+            assertSame(mExpected.get(position), mPictures.get(position));
+            assertTrue(mPictures.getResidentPageCount() <= PagedPictureList.MAX_PAGES);
+        }
+        int pages = (COUNT + PagedPictureList.PAGE_SIZE - 1) / PagedPictureList.PAGE_SIZE;
+        assertEquals(pages, mPictures.getLoadCount());
+    }
+
+    @Test
+    public void scrolling_readsPagesByNeighbourKey() {
+        final int[] offsetReads = new int[1];
+        mPictures = new PagedPictureList(new ListPictureStore(mExpected) {
+            @Override
+            public List<UserPicture> load(int offset, int limit) {
+                offsetReads[0]++;
+                return super.load(offset, limit);
+            }
+        });
+        assertContentEquals();
+        for (int position = COUNT - 1; position >= 0; position--) {
+            assertSame(mExpected.get(position), mPictures.get(position));
+        }
+        assertEquals(0, offsetReads[0]);
+        // A jump far from resident pages has no neighbour to start from
+        assertSame(mExpected.get(COUNT / 2), mPictures.get(COUNT / 2));
+        assertEquals(1, offsetReads[0]);
+    }
+
+    @Test
+    public void prefetch_dropsPagesReadBeforeMove() {
+        final List<Runnable> loads = new ArrayList<>();
+        mPictures = new PagedPictureList(new ListPictureStore(mExpected), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                loads.add(command);
+            }
+        });
+        mPictures.get(PagedPictureList.PAGE_SIZE - 1);
+        assertEquals(1, loads.size());
+        loads.get(0).run();
+        int loadCount = mPictures.getLoadCount();
+        // Prefetched page is taken as is
+        assertSame(mExpected.get(PagedPictureList.PAGE_SIZE), mPictures.get(PagedPictureList.PAGE_SIZE));
+        assertEquals(loadCount, mPictures.getLoadCount());
+
+        mPictures.get(2 * PagedPictureList.PAGE_SIZE - 1);
+        Runnable stale = loads.get(loads.size() - 1);
+        move(0, 2 * PagedPictureList.PAGE_SIZE + 5);
+        stale.run();
+        assertContentEquals();
+    }
+
+    @Test
+    public void move_acrossResidentPageBoundary() {
+        int from = PagedPictureList.PAGE_SIZE - 2;
+        int to = PagedPictureList.PAGE_SIZE + 3;
+        mPictures.get(from);
+        mPictures.get(to);
+        int loads = mPictures.getLoadCount();
+
+        move(from, to);
+        move(to, 0);
+        assertEquals(loads, mPictures.getLoadCount());
+        assertContentEquals();
+    }
+
+    @Test
+    public void move_acrossEvictedPages() {
+        mPictures.get(COUNT - 1);
+        move(COUNT - 1, 1);
+        move(2, COUNT - 2);
+        assertContentEquals();
+    }
+
+    @Test
+    public void removeAndAdd_shiftFollowingPages() {
+        for (int position = 0; position < 3 * PagedPictureList.PAGE_SIZE; position++) {
+            mPictures.get(position);
+        }
+        UserPicture picture = mExpected.get(PagedPictureList.PAGE_SIZE + 5);
+        int position = mPictures.indexOf(picture);
+        assertEquals(PagedPictureList.PAGE_SIZE + 5, position);
+        assertSame(picture, mPictures.remove(position));
+        mExpected.remove(position);
+        mPictures.add(picture);
+        mExpected.add(picture);
+        assertEquals(COUNT, mPictures.size());
+        assertContentEquals();
+    }
+
+    @Test
+    public void removeAndRestore_keepResidentPages() {
+        for (int position = 0; position < 2 * PagedPictureList.PAGE_SIZE; position++) {
+            mPictures.get(position);
+        }
+        int loads = mPictures.getLoadCount();
+        List<UserPicture> removed = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            UserPicture picture = mPictures.get(3 + i * 7);
+            assertEquals(mExpected.indexOf(picture), mPictures.indexOf(picture));
+            mPictures.remove(mPictures.indexOf(picture));
+            mExpected.remove(picture);
+            removed.add(picture);
+        }
+        // Pictures shift back within resident pages, only the last one is read again to fill it up
+        for (int position = 0; position < 2 * PagedPictureList.PAGE_SIZE; position++) {
+            assertSame(mExpected.get(position), mPictures.get(position));
+        }
+        assertEquals(loads + 1, mPictures.getLoadCount());
+
+        for (UserPicture picture : removed) {
+            assertFalse(mPictures.restore(picture));
+            assertSame(picture, mPictures.get(mPictures.indexOf(picture)));
+        }
+        assertEquals(COUNT, mPictures.size());
+        for (int position = 1; position < COUNT; position++) {
+            assertTrue(mPictures.get(position - 1).getOrder() < mPictures.get(position).getOrder());
+        }
+    }
+
+    @Test
+    public void restore_afterRebalance_putsPictureBetweenItsNeighbours() {
+        UserPicture previous = mExpected.get(9);
+        UserPicture picture = mExpected.get(10);
+        mPictures.remove(10);
+        mExpected.remove(10);
+        // Rebalances keys while the picture is removed
+        for (int i = 0; i < 64; i++) {
+            move(COUNT - 2, 1);
+        }
+        assertFalse(mPictures.restore(picture));
+        mExpected.add(mExpected.indexOf(previous) + 1, picture);
+
+        assertContentEquals();
+        for (int position = 1; position < COUNT; position++) {
+            assertTrue(mPictures.get(position - 1).getOrder() < mPictures.get(position).getOrder());
+        }
+    }
+
+    @Test
+    public void move_rebalancesExhaustedGap() {
+        // Every move halves the gap between the first two pictures
+        for (int i = 0; i < 64; i++) {
+            move(COUNT - 1, 1);
+        }
+        assertContentEquals();
+        for (int position = 1; position < COUNT; position++) {
+            assertTrue(mPictures.get(position - 1).getOrder() < mPictures.get(position).getOrder());
+        }
+    }
+
+    private void move(int from, int to) {
+        mPictures.move(from, to);
+        mExpected.add(to, mExpected.remove(from));
+    }
+
+    private void assertContentEquals() {
+        assertEquals(mExpected.size(), mPictures.size());
+        for (int position = 0; position < mExpected.size(); position++) {
+            assertSame("Position " + position, mExpected.get(position), mPictures.get(position));
+        }
+    }
+
+}
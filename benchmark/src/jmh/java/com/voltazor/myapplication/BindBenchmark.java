@@ -0,0 +1,96 @@
+package com.voltazor.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Framework independent part of {@code PhotosAdapter.onBindViewHolder}, done on fake holders:
+ * the picture is looked up through {@link PagedPictureList}, the holder takes the new binding and
+ * keeps its thumbnail uri when the picture stays the same. View, Picasso and cache work is left out.
+ * <p>
+ * Full binds follow a scroll by one screen of tiles, position rebinds follow a move to the main photo,
+ * which shifts every visible tile by one.
+ */
+@State(Scope.Thread)
+public class BindBenchmark {
+
+    // Tiles on screen of the edit screen grid
+    private static final int VISIBLE_ITEMS = 32;
+
+    @Param({"20", "200", "2000"})
+    public int itemCount;
+
+    private PagedPictureList mUserPictures;
+    private FakeHolder[] mHolders;
+    private int mFirstPosition;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<UserPicture> pictures = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            UserPicture picture = new UserPicture();
+            picture.setId(i + 1);
+            picture.setPictureUrl("http://example.com/" + i + ".jpg");
+            pictures.add(picture);
+        }
+        mUserPictures = new PagedPictureList(new ListPictureStore(pictures));
+        mHolders = new FakeHolder[Math.min(VISIBLE_ITEMS, itemCount)];
+        for (int i = 0; i < mHolders.length; i++) {
+            mHolders[i] = new FakeHolder();
+            bind(mHolders[i], i);
+        }
+    }
+
+    @Benchmark
+    public int bindAfterScroll() {
+        mFirstPosition = (mFirstPosition + mHolders.length) % itemCount;
+        int bucketSum = 0;
+        for (int i = 0; i < mHolders.length; i++) {
+            bucketSum += bind(mHolders[i], (mFirstPosition + i) % itemCount);
+        }
+        return bucketSum;
+    }
+
+    @Benchmark
+    public int rebindAfterMoveToMainPhoto() {
+        mUserPictures.move(itemCount - 1, 0);
+        int bucketSum = 0;
+        for (int i = 0; i < mHolders.length; i++) {
+            bucketSum += bind(mHolders[i], i);
+        }
+        return bucketSum;
+    }
+
+    private int bind(FakeHolder holder, int position) {
+        UserPicture picture = mUserPictures.get(position);
+        holder.picture = picture;
+        holder.isMainPhoto = position == 0;
+        // Main photo spans the whole row and uses a bigger thumbnail bucket
+        int bucket = holder.isMainPhoto ? 4 : 1;
+        String url = picture.getPictureUrl();
+        if (holder.uri == null || holder.bucket != bucket || !url.equals(holder.url)) {
+            holder.url = url;
+            holder.bucket = bucket;
+            holder.uri = "thumb://?url=" + url + "&bucket=" + bucket;
+        }
+        return holder.bucket;
+    }
+
+    private static class FakeHolder {
+
+        UserPicture picture;
+        boolean isMainPhoto;
+        String url;
+        int bucket;
+        String uri;
+
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.voltazor.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link DropTargetIndex} work behind {@code PhotoDragController}: the drop target lookup done for
+ * every handled move, a single collision check and a rebuild of the index. The controller itself
+ * needs views and isn't measured here.
+ * Items are laid out the way the edit screen does it: full span main photo followed by single span tiles.
+ */
+@State(Scope.Thread)
+public class DropTargetIndexBenchmark {
+
+    private static final int SPAN_COUNT = 4;
+    private static final int TILE_SIZE = 180;
+    private static final int STEPS = 256;
+
+    @Param({"20", "200", "2000"})
+    public int itemCount;
+
+    private DropTargetIndex mIndex;
+    private int[] mThumbX = new int[STEPS];
+    private int[] mThumbY = new int[STEPS];
+    private int mStep;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mIndex = new DropTargetIndex();
+        mIndex.add(0, 0, 0, TILE_SIZE * SPAN_COUNT, TILE_SIZE * SPAN_COUNT);
+        for (int position = 1; position < itemCount; position++) {
+            int column = (position - 1) % SPAN_COUNT;
+            int row = SPAN_COUNT + (position - 1) / SPAN_COUNT;
+            mIndex.add(position, column * TILE_SIZE, row * TILE_SIZE, (column + 1) * TILE_SIZE, (row + 1) * TILE_SIZE);
+        }
+        mIndex.build();
+
+        // Thumb path sweeping the whole gallery
+        int rows = SPAN_COUNT + (itemCount - 1) / SPAN_COUNT + 1;
+        for (int i = 0; i < STEPS; i++) {
+            mThumbX[i] = (i * 37) % (TILE_SIZE * (SPAN_COUNT - 1));
+            mThumbY[i] = (int) ((long) i * rows * TILE_SIZE / STEPS);
+        }
+    }
+
+    @Benchmark
+    public int findDropTarget() {
+        int step = mStep++ & (STEPS - 1);
+        int x = mThumbX[step];
+        int y = mThumbY[step];
+        return mIndex.findDropTarget(x, y, x + TILE_SIZE, y + TILE_SIZE, 1);
+    }
+
+    @Benchmark
+    public float checkCollision() {
+        int step = mStep++ & (STEPS - 1);
+        int x = mThumbX[step];
+        int y = mThumbY[step];
+        return mIndex.checkCollision(x, y, x + TILE_SIZE, y + TILE_SIZE, step % mIndex.size());
+    }
+
+    @Benchmark
+    public int rebuildIndex() {
+        mIndex.clear();
+        mIndex.add(0, 0, 0, TILE_SIZE * SPAN_COUNT, TILE_SIZE * SPAN_COUNT);
+        for (int position = 1; position < itemCount; position++) {
+            int column = (position - 1) % SPAN_COUNT;
+            int row = SPAN_COUNT + (position - 1) / SPAN_COUNT;
+            mIndex.add(position, column * TILE_SIZE, row * TILE_SIZE, (column + 1) * TILE_SIZE, (row + 1) * TILE_SIZE);
+        }
+        mIndex.build();
+        return mIndex.size();
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.voltazor.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Per-frame cost of {@code DummyAnimator}'s scheduler when a reorder moves many tiles at once.
+ * {@code frame} is one tick of all running moves, a new batch of moves is scheduled as soon as
+ * the previous one finishes, so scheduling is included at its real share. {@code reorder} runs
+ * a whole batch from scheduling to the last frame. Both should report gc.alloc.rate.norm of 0.
+ */
+@State(Scope.Thread)
+public class ItemAnimationBenchmark {
+
+    private static final long FRAME_NANOS = 16666667;
+    private static final long MOVE_DURATION_NANOS = 250 * 1000000L;
+    private static final int TILE_SIZE = 180;
+
+    @Param({"50"})
+    public int moveCount;
+
+    private ItemAnimationScheduler<Object> mScheduler;
+    private Object[] mItems;
+    private final long[] mDelays = new long[ItemAnimationScheduler.TYPE_COUNT];
+    private long mFrameTimeNanos;
+
+    @Setup(Level.Trial)
+    public void setUp(final Blackhole blackhole) {
+        mScheduler = new ItemAnimationScheduler<>(new ItemAnimationScheduler.Renderer<Object>() {
+            @Override
+            public void onStarted(Object item, int type) {
+                blackhole.consume(item);
+            }
+
+            @Override
+            public void onUpdate(Object item, float translationX, float translationY, float alpha) {
+                blackhole.consume(translationX);
+                blackhole.consume(translationY);
+                blackhole.consume(alpha);
+            }
+
+            @Override
+            public void onFinished(Object item, int type) {
+                blackhole.consume(item);
+            }
+        });
+        mItems = new Object[moveCount];
+        for (int i = 0; i < moveCount; i++) {
+            mItems[i] = new Object();
+        }
+        // Grows the record arrays, later batches reuse them
+        scheduleMoves();
+        mScheduler.endAll();
+    }
+
+    @Benchmark
+    public boolean frame() {
+        if (!mScheduler.isRunning()) {
+            scheduleMoves();
+        }
+        mFrameTimeNanos += FRAME_NANOS;
+        return mScheduler.tick(mFrameTimeNanos);
+    }
+
+    @Benchmark
+    public long reorder() {
+        scheduleMoves();
+        long frames = 0;
+        do {
+            mFrameTimeNanos += FRAME_NANOS;
+            frames++;
+        } while (mScheduler.tick(mFrameTimeNanos));
+        return frames;
+    }
+
+    /**
+     * Every tile slides one cell forward, as when the first tile is dropped at the end
+     */
+    private void scheduleMoves() {
+        for (int i = 0; i < moveCount; i++) {
+            float fromX = i % 4 == 0 ? 3 * TILE_SIZE : -TILE_SIZE;
+            float fromY = i % 4 == 0 ? -TILE_SIZE : 0;
+            mScheduler.schedule(mItems[i], ItemAnimationScheduler.TYPE_MOVE, MOVE_DURATION_NANOS,
+                    fromX, fromY, 1, 0, 0, 1);
+        }
+        mScheduler.startPending(mDelays);
+    }
+
+}
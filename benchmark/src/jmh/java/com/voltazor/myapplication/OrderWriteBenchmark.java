@@ -0,0 +1,95 @@
+package com.voltazor.myapplication;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Rows a persistent store has to write per reorder. Order keys are compared against
+ * positional order, which rewrites every row between the two positions.
+ * See the {@code rowsWritten} secondary result, it's reported per operation.
+ */
+@State(Scope.Thread)
+public class OrderWriteBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int itemCount;
+
+    private CountingStore mStore;
+    private PagedPictureList mPictures;
+    private Random mRandom;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<UserPicture> pictures = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            UserPicture picture = new UserPicture();
+            picture.setId(i + 1);
+            pictures.add(picture);
+        }
+        mStore = new CountingStore(pictures);
+        mPictures = new PagedPictureList(mStore);
+        mRandom = new Random(42);
+    }
+
+    @Benchmark
+    public void orderKeys(Writes writes) {
+        int fromPosition = mRandom.nextInt(itemCount);
+        int toPosition = mRandom.nextInt(itemCount);
+        long before = mStore.mWrites;
+        mPictures.move(fromPosition, toPosition);
+        writes.rowsWritten += mStore.mWrites - before;
+    }
+
+    @Benchmark
+    public void positions(Writes writes) {
+        int fromPosition = mRandom.nextInt(itemCount);
+        int toPosition = mRandom.nextInt(itemCount);
+        // Every picture between the two positions gets a new position
+        writes.rowsWritten += fromPosition != toPosition ? Math.abs(toPosition - fromPosition) + 1 : 0;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Writes {
+
+        public long rowsWritten;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rowsWritten = 0;
+        }
+
+    }
+
+    private static class CountingStore extends ListPictureStore {
+
+        private long mWrites;
+
+        private CountingStore(List<UserPicture> pictures) {
+            super(pictures);
+        }
+
+        @Override
+        public void updateOrder(UserPicture picture) {
+            super.updateOrder(picture);
+            mWrites++;
+        }
+
+        @Override
+        public void rebalance() {
+            super.rebalance();
+            mWrites += getCount();
+        }
+
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.voltazor.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Model update done by {@code PhotosAdapter.onItemMoved} when the thumb crosses a tile,
+ * which is {@link PagedPictureList#move(int, int)} over an in-memory store.
+ */
+@State(Scope.Thread)
+public class ReorderBenchmark {
+
+    @Param({"20", "200", "2000"})
+    public int itemCount;
+
+    private PagedPictureList mUserPictures;
+    private int mStep;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<UserPicture> pictures = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            UserPicture picture = new UserPicture();
+            picture.setId(i + 1);
+            pictures.add(picture);
+        }
+        mUserPictures = new PagedPictureList(new ListPictureStore(pictures));
+    }
+
+    @Benchmark
+    public boolean onItemMovedToNeighbour() {
+        int fromPosition = mStep++ % (itemCount - 1);
+        return mUserPictures.move(fromPosition, fromPosition + 1);
+    }
+
+    @Benchmark
+    public boolean onItemMovedToMainPhoto() {
+        int fromPosition = 1 + mStep++ % (itemCount - 1);
+        return mUserPictures.move(fromPosition, 0);
+    }
+
+}